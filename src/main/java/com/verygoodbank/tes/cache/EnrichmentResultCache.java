@@ -0,0 +1,248 @@
+package com.verygoodbank.tes.cache;
+
+import com.verygoodbank.tes.io.TeeOutputStream;
+import com.verygoodbank.tes.service.ProductService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Optional on-disk cache of enrichment results, keyed by the SHA-256 of the uploaded bytes
+ * and the product snapshot version.
+ * <p>
+ * Entries are evicted in least-recently-used order once {@code result-cache.max-size} is
+ * exceeded. The whole cache is dropped when the product data is reloaded. Hits are
+ * streamed to the response with {@link FileChannel#transferTo}.
+ */
+@Slf4j
+@Component
+public class EnrichmentResultCache {
+
+    private static final String ENTRY_SUFFIX = ".result";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final ProductService productService;
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxSizeBytes;
+
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long productVersion = -1;
+
+    public EnrichmentResultCache(final ProductService productService,
+                                 @Value("${result-cache.enabled}") final boolean enabled,
+                                 @Value("${result-cache.directory}") final String directory,
+                                 @Value("${result-cache.max-size}") final DataSize maxSize) {
+        this.productService = productService;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxSizeBytes = maxSize.toBytes();
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (enabled) {
+            Files.createDirectories(directory);
+            deleteCacheFiles();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hashes the upload in a single streaming pass and combines it with the current
+     * product snapshot version.
+     */
+    public String key(final MultipartFile file) throws IOException {
+        final long version = productService.getSnapshotVersion();
+        invalidateIfProductsReloaded(version);
+        final MessageDigest digest = sha256();
+        try (InputStream inputStream = file.getInputStream()) {
+            final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest()) + "-" + version;
+    }
+
+    /**
+     * Streams a cached result to {@code outputStream}.
+     *
+     * @return {@code false} when there is no entry for {@code key}
+     */
+    public boolean serve(final String key, final OutputStream outputStream) throws IOException {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return false;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(entryPath(key), StandardOpenOption.READ)) {
+            final WritableByteChannel target = Channels.newChannel(outputStream);
+            final long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            synchronized (this) {
+                remove(key);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Opens an entry that copies everything written to {@code outputStream} into the
+     * cache. The result is only kept if {@link Entry#commit()} is called before closing.
+     */
+    public Entry open(final String key, final OutputStream outputStream) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(directory, key, TEMP_SUFFIX);
+            final OutputStream fileOutputStream = new BufferedOutputStream(Files.newOutputStream(tempFile), HASH_BUFFER_SIZE);
+            return new Entry(key, tempFile, fileOutputStream, new TeeOutputStream(outputStream, fileOutputStream));
+        } catch (IOException e) {
+            log.warn("Result cache entry could not be created, serving uncached: {}", e.getMessage());
+            deleteQuietly(tempFile);
+            return new Entry(key, null, null, outputStream);
+        }
+    }
+
+    private synchronized void store(final String key, final Path tempFile) throws IOException {
+        final long size = Files.size(tempFile);
+        if (size > maxSizeBytes || !key.endsWith("-" + productVersion)) {
+            Files.deleteIfExists(tempFile);
+            return;
+        }
+        Files.move(tempFile, entryPath(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        final Long previous = entries.put(key, size);
+        totalBytes += size - (previous == null ? 0 : previous);
+        final Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxSizeBytes && eldest.hasNext()) {
+            final Map.Entry<String, Long> evicted = eldest.next();
+            eldest.remove();
+            totalBytes -= evicted.getValue();
+            Files.deleteIfExists(entryPath(evicted.getKey()));
+        }
+    }
+
+    private synchronized void invalidateIfProductsReloaded(final long version) throws IOException {
+        if (version == productVersion) {
+            return;
+        }
+        if (productVersion >= 0) {
+            log.info("Product data reloaded (version {} -> {}), clearing result cache", productVersion, version);
+        }
+        for (String key : entries.keySet()) {
+            Files.deleteIfExists(entryPath(key));
+        }
+        entries.clear();
+        totalBytes = 0;
+        productVersion = version;
+    }
+
+    private void remove(final String key) {
+        final Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private Path entryPath(final String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private void deleteCacheFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.toString().endsWith(ENTRY_SUFFIX) || file.toString().endsWith(TEMP_SUFFIX))
+                    .forEach(EnrichmentResultCache::deleteQuietly);
+        }
+    }
+
+    private static void deleteQuietly(final Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete result cache file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public final class Entry implements AutoCloseable {
+
+        private final String key;
+        private final Path tempFile;
+        private final OutputStream outputStream;
+        private final OutputStream fileOutputStream;
+        private boolean committed;
+
+        private Entry(final String key, final Path tempFile, final OutputStream fileOutputStream,
+                      final OutputStream outputStream) {
+            this.key = key;
+            this.tempFile = tempFile;
+            this.fileOutputStream = fileOutputStream;
+            this.outputStream = outputStream;
+        }
+
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        public void commit() throws IOException {
+            if (fileOutputStream != null) {
+                fileOutputStream.close();
+                store(key, tempFile);
+            }
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOutputStream != null && !committed) {
+                fileOutputStream.close();
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.verygoodbank.tes.config;
 
+import com.verygoodbank.tes.io.ResponseBufferPool;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
@@ -14,4 +19,35 @@ public class AppConfig {
     public ForkJoinPool forkJoinPool() {
         return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
     }
+
+    /**
+     * Runs the per-file tasks of batch uploads. Unbounded because the number of files in
+     * flight is already limited by {@code batch.max-concurrent-files}.
+     */
+    @Bean
+    public ExecutorService batchExecutor() {
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Runs the reader of each enriched file, which parses records and hands them to the
+     * {@link ForkJoinPool} in batches. Unbounded because there is one reader per request.
+     */
+    @Bean
+    public ExecutorService readerExecutor() {
+        return Executors.newCachedThreadPool();
+    }
+
+    @Bean
+    public Scheduler enrichmentScheduler(ForkJoinPool forkJoinPool) {
+        return Schedulers.fromExecutorService(forkJoinPool, "enrichment");
+    }
+
+    @Bean
+    public ResponseBufferPool responseBufferPool(@Value("${response.buffer.size}") int bufferSize,
+                                                 @Value("${response.buffer.pool-size}") int poolSize,
+                                                 @Value("${response.buffer.max-pending}") int maxPending,
+                                                 @Value("${response.flush.interval}") Duration flushInterval) {
+        return new ResponseBufferPool(bufferSize, poolSize, maxPending, flushInterval);
+    }
 }
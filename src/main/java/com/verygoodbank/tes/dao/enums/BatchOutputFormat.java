@@ -0,0 +1,25 @@
+package com.verygoodbank.tes.dao.enums;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum BatchOutputFormat {
+        ZIP("zip"),
+        CSV("csv");
+
+        private final String parameter;
+
+        BatchOutputFormat(String parameter) {
+            this.parameter = parameter;
+        }
+
+        public String getParameter() {
+            return parameter;
+        }
+
+        public static Optional<BatchOutputFormat> fromParameter(String parameter) {
+            return Arrays.stream(values())
+                    .filter(format -> format.parameter.equalsIgnoreCase(parameter))
+                    .findFirst();
+        }
+    }
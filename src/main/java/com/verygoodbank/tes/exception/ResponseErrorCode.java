@@ -5,4 +5,5 @@ public class ResponseErrorCode {
     public static final String READING_TRADE_DATA_ERROR = "READING_TRADE_DATA_ERROR";
     public static final String TRADE_LINE_PROCESSING_ERROR = "TRADE_LINE_PROCESSING_ERROR";
     public static final String ERROR_LOADING_PRODUCT_DATA = "ERROR_LOADING_PRODUCT_DATA";
+    public static final String BATCH_ENTRY_TOO_LARGE = "BATCH_ENTRY_TOO_LARGE";
 }
@@ -0,0 +1,37 @@
+package com.verygoodbank.tes.health;
+
+import com.verygoodbank.tes.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Reports {@code OUT_OF_SERVICE} until the product index is loaded. It is part of the
+ * readiness group, so {@code /actuator/health/readiness} only turns {@code UP} once trades
+ * can be enriched without waiting for the product file. A failed initial load is reported
+ * as {@code DOWN} with the failure.
+ */
+@Component("productIndex")
+@RequiredArgsConstructor
+public class ProductIndexHealthIndicator implements HealthIndicator {
+
+    private final ProductService productService;
+
+    @Override
+    public Health health() {
+        final Optional<String> loadFailure = productService.getLoadFailure();
+        if (loadFailure.isPresent()) {
+            return Health.down().withDetail("error", loadFailure.get()).build();
+        }
+        if (!productService.isLoaded()) {
+            return Health.outOfService().build();
+        }
+        return Health.up()
+                .withDetail("products", productService.getProductCount())
+                .withDetail("version", productService.getSnapshotVersion())
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.verygoodbank.tes.io;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a stream of {@link DataBuffer}s into UTF-8 lines.
+ * <p>
+ * Lines that lie within one buffer are decoded straight from that buffer without an
+ * intermediate copy. Only a line that straddles a buffer boundary is carried over in a
+ * small reusable array until its end arrives. Every buffer is released once split.
+ */
+public final class DataBufferLineSplitter {
+
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private byte[] carry = new byte[256];
+    private int carryLength;
+
+    private DataBufferLineSplitter() {
+    }
+
+    public static Flux<String> split(final Flux<DataBuffer> content) {
+        return Flux.defer(() -> {
+            final DataBufferLineSplitter splitter = new DataBufferLineSplitter();
+            return content.concatMapIterable(splitter::split)
+                    .concatWith(Mono.fromSupplier(splitter::remainder))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    private List<String> split(final DataBuffer buffer) {
+        try {
+            final List<String> lines = new ArrayList<>();
+            final int end = buffer.writePosition();
+            int start = buffer.readPosition();
+            while (start < end) {
+                final int newLine = buffer.indexOf(b -> b == NEW_LINE, start);
+                if (newLine < 0) {
+                    appendCarry(buffer, start, end - start);
+                    break;
+                }
+                if (carryLength > 0) {
+                    appendCarry(buffer, start, newLine - start);
+                    lines.add(takeCarry());
+                } else {
+                    int lineEnd = newLine;
+                    if (lineEnd > start && buffer.getByte(lineEnd - 1) == CARRIAGE_RETURN) {
+                        lineEnd--;
+                    }
+                    lines.add(buffer.toString(start, lineEnd - start, StandardCharsets.UTF_8));
+                }
+                start = newLine + 1;
+            }
+            return lines;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private String remainder() {
+        return carryLength > 0 ? takeCarry() : null;
+    }
+
+    private void appendCarry(final DataBuffer buffer, final int index, final int length) {
+        if (carryLength + length > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(carry.length * 2, carryLength + length));
+        }
+        for (int i = 0; i < length; i++) {
+            carry[carryLength + i] = buffer.getByte(index + i);
+        }
+        carryLength += length;
+    }
+
+    private String takeCarry() {
+        int length = carryLength;
+        if (length > 0 && carry[length - 1] == CARRIAGE_RETURN) {
+            length--;
+        }
+        carryLength = 0;
+        return new String(carry, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,199 @@
+package com.verygoodbank.tes.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decouples the producers of a response from the response stream.
+ * <p>
+ * Producers call {@link #writeLine(String)}, which only copies bytes into a pooled buffer
+ * and hands full buffers over through a bounded queue. A single thread calls
+ * {@link #drainUntil(Future)} and is the only one touching the socket. It writes buffers
+ * as they fill and flushes partial ones once the flush interval elapses. When the client
+ * stops reading, the queue fills up and producers wait on it, which pauses parsing
+ * upstream instead of blocking on socket I/O. Producers should therefore not be workers
+ * of a shared {@link java.util.concurrent.ForkJoinPool}; a waiting worker would be lost to
+ * every other request using the pool.
+ */
+public class PooledResponseWriter implements Closeable {
+
+    private static final byte NEW_LINE = '\n';
+
+    private final ResponseBufferPool pool;
+    private final OutputStream outputStream;
+    private final BlockingQueue<Chunk> pending;
+    private final long flushIntervalNanos;
+    private final Object lock = new Object();
+
+    private byte[] current;
+    private int position;
+    private volatile IOException failure;
+
+    public PooledResponseWriter(final ResponseBufferPool pool, final OutputStream outputStream) {
+        this.pool = pool;
+        this.outputStream = outputStream;
+        this.pending = new ArrayBlockingQueue<>(pool.getMaxPendingBuffers());
+        this.flushIntervalNanos = pool.getFlushInterval().toNanos();
+    }
+
+    public void writeLine(final String line) {
+        writeLine(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeLine(final byte[] line) {
+        ensureOpen();
+        Chunk full = null;
+        Chunk oversized = null;
+        synchronized (lock) {
+            if (current == null) {
+                current = pool.acquire();
+                position = 0;
+            }
+            if (position + line.length + 1 > current.length && position > 0) {
+                full = new Chunk(current, position, true);
+                current = pool.acquire();
+                position = 0;
+            }
+            if (line.length + 1 > current.length) {
+                final byte[] bytes = new byte[line.length + 1];
+                System.arraycopy(line, 0, bytes, 0, line.length);
+                bytes[line.length] = NEW_LINE;
+                oversized = new Chunk(bytes, bytes.length, false);
+            } else {
+                System.arraycopy(line, 0, current, position, line.length);
+                position += line.length;
+                current[position++] = NEW_LINE;
+            }
+        }
+        if (full != null) {
+            enqueue(full);
+        }
+        if (oversized != null) {
+            enqueue(oversized);
+        }
+    }
+
+    /**
+     * Writes buffers to the underlying stream until {@code producers} completes and every
+     * buffer it produced has been written. Must be called from a single thread.
+     */
+    public void drainUntil(final Future<?> producers) throws IOException {
+        long lastFlush = System.nanoTime();
+        try {
+            while (!(producers.isDone() && pending.isEmpty())) {
+                final Chunk chunk = pending.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (chunk != null) {
+                    write(chunk);
+                }
+                if (System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                    writePartial();
+                    outputStream.flush();
+                    lastFlush = System.nanoTime();
+                }
+            }
+            writePartial();
+            outputStream.flush();
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final InterruptedIOException interrupted = new InterruptedIOException("Interrupted while draining response");
+            fail(interrupted);
+            throw interrupted;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (failure == null) {
+            failure = new IOException("Response writer closed");
+        }
+        synchronized (lock) {
+            if (current != null) {
+                pool.release(current);
+                current = null;
+            }
+        }
+        discardPending();
+    }
+
+    private void enqueue(final Chunk chunk) {
+        if (!pending.offer(chunk)) {
+            final long start = System.nanoTime();
+            try {
+                while (!pending.offer(chunk, flushIntervalNanos, TimeUnit.NANOSECONDS)) {
+                    ensureOpen();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                release(chunk);
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the client"));
+            } catch (UncheckedIOException e) {
+                release(chunk);
+                throw e;
+            } finally {
+                pool.recordStall(System.nanoTime() - start);
+            }
+        }
+        if (failure != null) {
+            discardPending();
+        }
+    }
+
+    private void writePartial() throws IOException {
+        final Chunk partial;
+        synchronized (lock) {
+            if (current == null || position == 0) {
+                return;
+            }
+            partial = new Chunk(current, position, true);
+            current = null;
+        }
+        write(partial);
+    }
+
+    private void write(final Chunk chunk) throws IOException {
+        try {
+            outputStream.write(chunk.bytes(), 0, chunk.length());
+        } finally {
+            release(chunk);
+        }
+    }
+
+    private void release(final Chunk chunk) {
+        if (chunk.pooled()) {
+            pool.release(chunk.bytes());
+        }
+    }
+
+    private void fail(final IOException e) {
+        failure = e;
+        discardPending();
+    }
+
+    private void discardPending() {
+        Chunk chunk;
+        while ((chunk = pending.poll()) != null) {
+            release(chunk);
+        }
+    }
+
+    private void ensureOpen() {
+        final IOException e = failure;
+        if (e != null) {
+            throw new UncheckedIOException("Response stream is no longer writable", e);
+        }
+    }
+
+    private record Chunk(byte[] bytes, int length, boolean pooled) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.verygoodbank.tes.io;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared pool of fixed-size byte buffers used by {@link PooledResponseWriter}.
+ * <p>
+ * The pool never blocks: when it is empty a fresh buffer is allocated, and buffers
+ * returned to a full pool are dropped. It also aggregates the time producers spent
+ * stalled on slow clients, so both can be exported as metrics.
+ */
+public class ResponseBufferPool implements MeterBinder {
+
+    @Getter
+    private final int bufferSize;
+    @Getter
+    private final int maxPendingBuffers;
+    @Getter
+    private final Duration flushInterval;
+
+    private final BlockingQueue<byte[]> pooled;
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder stallCount = new LongAdder();
+    private final LongAdder stallNanos = new LongAdder();
+
+    public ResponseBufferPool(final int bufferSize, final int maxPooledBuffers,
+                              final int maxPendingBuffers, final Duration flushInterval) {
+        if (bufferSize <= 0 || maxPooledBuffers <= 0 || maxPendingBuffers <= 0) {
+            throw new IllegalArgumentException("Buffer pool sizes must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPendingBuffers = maxPendingBuffers;
+        this.flushInterval = flushInterval;
+        this.pooled = new ArrayBlockingQueue<>(maxPooledBuffers);
+    }
+
+    public byte[] acquire() {
+        inUse.incrementAndGet();
+        final byte[] buffer = pooled.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        allocations.increment();
+        return new byte[bufferSize];
+    }
+
+    public void release(final byte[] buffer) {
+        inUse.decrementAndGet();
+        if (buffer.length == bufferSize) {
+            pooled.offer(buffer);
+        }
+    }
+
+    void recordStall(final long nanos) {
+        stallCount.increment();
+        stallNanos.add(nanos);
+    }
+
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public int getAvailable() {
+        return pooled.size();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("tes.response.buffers.in.use", this, ResponseBufferPool::getInUse)
+                .description("Response buffers currently held by writers")
+                .register(registry);
+        Gauge.builder("tes.response.buffers.available", this, ResponseBufferPool::getAvailable)
+                .description("Idle response buffers kept in the pool")
+                .register(registry);
+        FunctionCounter.builder("tes.response.buffers.allocated", allocations, LongAdder::sum)
+                .description("Response buffers allocated because the pool was empty")
+                .register(registry);
+        FunctionTimer.builder("tes.response.stall", this,
+                        pool -> pool.stallCount.sum(), pool -> pool.stallNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time enrichment workers waited for a slow client to drain the response")
+                .register(registry);
+    }
+}
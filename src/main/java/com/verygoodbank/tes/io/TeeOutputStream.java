@@ -0,0 +1,42 @@
+package com.verygoodbank.tes.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes every byte to a primary and a secondary stream. Closing it closes only the
+ * secondary stream; the primary one is owned by the caller.
+ */
+public class TeeOutputStream extends OutputStream {
+
+    private final OutputStream primary;
+    private final OutputStream secondary;
+
+    public TeeOutputStream(final OutputStream primary, final OutputStream secondary) {
+        this.primary = primary;
+        this.secondary = secondary;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        primary.write(b);
+        secondary.write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        primary.write(b, off, len);
+        secondary.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        primary.flush();
+        secondary.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        secondary.close();
+    }
+}
@@ -0,0 +1,23 @@
+package com.verygoodbank.tes.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.verygoodbank.tes.EnrichmentStage")
+@Label("Enrichment Stage")
+@Category({"Trade Enrichment"})
+@Description("Duration of one pipeline stage of a trade enrichment request")
+class EnrichmentStageEvent extends Event {
+
+    @Label("Request Id")
+    long requestId;
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Stage")
+    String stage;
+}
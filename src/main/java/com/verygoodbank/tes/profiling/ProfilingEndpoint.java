@@ -0,0 +1,22 @@
+package com.verygoodbank.tes.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes per-request allocation, GC and I/O profiles under {@code /actuator/enrichmentprofiles}.
+ */
+@Component
+@Endpoint(id = "enrichmentprofiles")
+@RequiredArgsConstructor
+public class ProfilingEndpoint {
+
+    private final RequestProfiler requestProfiler;
+
+    @ReadOperation
+    public ProfilingReport profiles() {
+        return requestProfiler.report();
+    }
+}
@@ -0,0 +1,17 @@
+package com.verygoodbank.tes.profiling;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ProfilingReport {
+    private final long requests;
+    private final long totalAllocatedBytes;
+    private final long totalGcPauseMillis;
+    private final long totalBytesIn;
+    private final long totalBytesOut;
+    private final List<RequestProfile> recent;
+}
@@ -0,0 +1,30 @@
+package com.verygoodbank.tes.profiling;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Resource usage of a single enrichment request.
+ * <p>
+ * {@code allocatedBytes} is summed over every thread that worked on the request, from the
+ * moment each thread first touched it. Worker threads are shared, so under concurrent load
+ * it also includes allocations of requests interleaved on the same workers, and it misses
+ * threads that exit before the request finishes. GC figures are process-wide deltas over
+ * the request's lifetime.
+ */
+@Getter
+@Builder
+public class RequestProfile {
+    private final long requestId;
+    private final String endpoint;
+    private final Instant startedAt;
+    private final long durationMillis;
+    private final long allocatedBytes;
+    private final int threads;
+    private final long gcPauseMillis;
+    private final long gcCount;
+    private final long bytesIn;
+    private final long bytesOut;
+}
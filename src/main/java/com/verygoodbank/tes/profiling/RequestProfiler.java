@@ -0,0 +1,232 @@
+package com.verygoodbank.tes.profiling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records thread allocations, GC pauses and bytes in and out for each enrichment request.
+ * <p>
+ * A request calls {@link #start(String)} and then {@link Recording#track()} from every
+ * thread that works on it. The first call on a thread snapshots that thread's allocation
+ * counter, and {@link Recording#finish()} sums the deltas of all tracked threads. When
+ * {@code profiling.jfr.enabled} is set, pipeline stages are also emitted as JFR events.
+ */
+@Slf4j
+@Component
+public class RequestProfiler {
+
+    private final boolean enabled;
+    private final boolean jfrEnabled;
+    private final int recentLimit;
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final List<GarbageCollectorMXBean> garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private final AtomicLong requestIds = new AtomicLong();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder totalAllocatedBytes = new LongAdder();
+    private final LongAdder totalGcPauseMillis = new LongAdder();
+    private final LongAdder totalBytesIn = new LongAdder();
+    private final LongAdder totalBytesOut = new LongAdder();
+    private final Deque<RequestProfile> recent = new ArrayDeque<>();
+    private final ThreadLocal<Recording> lastTracked = new ThreadLocal<>();
+
+    public RequestProfiler(@Value("${profiling.enabled}") final boolean enabled,
+                           @Value("${profiling.jfr.enabled}") final boolean jfrEnabled,
+                           @Value("${profiling.recent-requests}") final int recentLimit) {
+        this.threadMXBean = allocationTrackingThreadMXBean();
+        this.enabled = enabled;
+        this.jfrEnabled = jfrEnabled;
+        this.recentLimit = recentLimit;
+    }
+
+    public Recording start(final String endpoint) {
+        return new Recording(requestIds.incrementAndGet(), endpoint);
+    }
+
+    public ProfilingReport report() {
+        final List<RequestProfile> snapshot;
+        synchronized (recent) {
+            snapshot = new ArrayList<>(recent);
+        }
+        return new ProfilingReport(requests.sum(), totalAllocatedBytes.sum(), totalGcPauseMillis.sum(),
+                totalBytesIn.sum(), totalBytesOut.sum(), snapshot);
+    }
+
+    private void record(final RequestProfile profile) {
+        requests.increment();
+        totalAllocatedBytes.add(profile.getAllocatedBytes());
+        totalGcPauseMillis.add(profile.getGcPauseMillis());
+        totalBytesIn.add(profile.getBytesIn());
+        totalBytesOut.add(profile.getBytesOut());
+        synchronized (recent) {
+            recent.addFirst(profile);
+            while (recent.size() > recentLimit) {
+                recent.removeLast();
+            }
+        }
+        log.debug("Request {} on {} allocated {} bytes in {} ms", profile.getRequestId(), profile.getEndpoint(),
+                profile.getAllocatedBytes(), profile.getDurationMillis());
+    }
+
+    private long gcPauseMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : garbageCollectors) {
+            total += Math.max(collector.getCollectionTime(), 0);
+        }
+        return total;
+    }
+
+    private long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : garbageCollectors) {
+            total += Math.max(collector.getCollectionCount(), 0);
+        }
+        return total;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationTrackingThreadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        }
+        log.warn("Thread allocation tracking is not supported by this JVM, allocated bytes will not be reported");
+        return null;
+    }
+
+    public final class Recording {
+
+        private final long requestId;
+        private final String endpoint;
+        private final boolean active;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final long startGcPauseMillis;
+        private final long startGcCount;
+        private final Map<Long, Long> startAllocations = new ConcurrentHashMap<>();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final EnrichmentStageEvent requestEvent;
+
+        private Recording(final long requestId, final String endpoint) {
+            this.requestId = requestId;
+            this.endpoint = endpoint;
+            this.active = enabled;
+            this.startGcPauseMillis = active ? gcPauseMillis() : 0;
+            this.startGcCount = active ? gcCount() : 0;
+            this.requestEvent = beginEvent("request");
+        }
+
+        /**
+         * Registers the calling thread as working on this request. Repeated calls on a
+         * thread that last tracked this recording only read a thread local, so the call is
+         * cheap enough for per-record hot paths.
+         */
+        public void track() {
+            if (!active || threadMXBean == null || lastTracked.get() == this) {
+                return;
+            }
+            lastTracked.set(this);
+            final long threadId = Thread.currentThread().getId();
+            if (!startAllocations.containsKey(threadId)) {
+                startAllocations.putIfAbsent(threadId, threadMXBean.getCurrentThreadAllocatedBytes());
+            }
+        }
+
+        public void addBytesIn(final long bytes) {
+            bytesIn.add(bytes);
+        }
+
+        public void addBytesOut(final long bytes) {
+            bytesOut.add(bytes);
+        }
+
+        /**
+         * Opens a pipeline stage that is emitted as a JFR event when closed.
+         */
+        public Stage stage(final String name) {
+            return new Stage(beginEvent(name));
+        }
+
+        public void finish() {
+            commitEvent(requestEvent);
+            if (!active) {
+                return;
+            }
+            record(RequestProfile.builder()
+                    .requestId(requestId)
+                    .endpoint(endpoint)
+                    .startedAt(startedAt)
+                    .durationMillis((System.nanoTime() - startNanos) / 1_000_000)
+                    .allocatedBytes(allocatedBytes())
+                    .threads(startAllocations.size())
+                    .gcPauseMillis(gcPauseMillis() - startGcPauseMillis)
+                    .gcCount(gcCount() - startGcCount)
+                    .bytesIn(bytesIn.sum())
+                    .bytesOut(bytesOut.sum())
+                    .build());
+        }
+
+        private long allocatedBytes() {
+            if (threadMXBean == null || startAllocations.isEmpty()) {
+                return 0;
+            }
+            final long[] threadIds = startAllocations.keySet().stream().mapToLong(Long::longValue).toArray();
+            final long[] current = threadMXBean.getThreadAllocatedBytes(threadIds);
+            long total = 0;
+            for (int i = 0; i < threadIds.length; i++) {
+                if (current[i] >= 0) {
+                    total += current[i] - startAllocations.get(threadIds[i]);
+                }
+            }
+            return total;
+        }
+
+        private EnrichmentStageEvent beginEvent(final String stage) {
+            if (!jfrEnabled) {
+                return null;
+            }
+            final EnrichmentStageEvent event = new EnrichmentStageEvent();
+            event.requestId = requestId;
+            event.endpoint = endpoint;
+            event.stage = stage;
+            event.begin();
+            return event;
+        }
+
+        private void commitEvent(final EnrichmentStageEvent event) {
+            if (event != null) {
+                event.commit();
+            }
+        }
+
+        public final class Stage implements AutoCloseable {
+
+            private final EnrichmentStageEvent event;
+
+            private Stage(final EnrichmentStageEvent event) {
+                this.event = event;
+            }
+
+            @Override
+            public void close() {
+                commitEvent(event);
+            }
+        }
+    }
+}
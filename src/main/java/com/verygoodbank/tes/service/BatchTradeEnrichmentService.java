@@ -0,0 +1,17 @@
+package com.verygoodbank.tes.service;
+
+import com.verygoodbank.tes.dao.enums.BatchOutputFormat;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.OutputStream;
+import java.util.List;
+
+public interface BatchTradeEnrichmentService {
+
+    /**
+     * Enriches every CSV file of the batch, including the CSV entries of uploaded zip
+     * archives. {@link BatchOutputFormat#ZIP} writes one enriched entry per input file,
+     * {@link BatchOutputFormat#CSV} writes a single CSV with an extra {@code source} column.
+     */
+    void enrichBatch(List<MultipartFile> files, BatchOutputFormat format, OutputStream outputStream);
+}
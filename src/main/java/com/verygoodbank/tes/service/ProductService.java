@@ -1,6 +1,29 @@
 package com.verygoodbank.tes.service;
 
+import java.util.Optional;
+
 public interface ProductService {
 
+    /**
+     * Looks up a product name. Blocks while the initial product load is still running.
+     */
     String getProductName(String productId);
+
+    /**
+     * Whether the initial product load has completed, so lookups no longer block.
+     */
+    boolean isLoaded();
+
+    /**
+     * Why the initial product load failed, if it did. Empty while it is running and once it
+     * has succeeded.
+     */
+    Optional<String> getLoadFailure();
+
+    int getProductCount();
+
+    /**
+     * Version of the loaded product data, incremented on every (re)load.
+     */
+    long getSnapshotVersion();
 }
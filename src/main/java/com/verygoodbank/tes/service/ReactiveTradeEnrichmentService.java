@@ -0,0 +1,14 @@
+package com.verygoodbank.tes.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveTradeEnrichmentService {
+
+    /**
+     * Enriches a trade CSV stream. The response header is emitted only once the first
+     * input line has arrived, so an empty input produces an empty output.
+     */
+    Flux<DataBuffer> enrichTradeData(Flux<DataBuffer> content, DataBufferFactory bufferFactory);
+}
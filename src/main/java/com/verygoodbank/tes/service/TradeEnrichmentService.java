@@ -1,10 +1,35 @@
 package com.verygoodbank.tes.service;
 
+import com.verygoodbank.tes.io.PooledResponseWriter;
+import com.verygoodbank.tes.profiling.RequestProfiler;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 
 public interface TradeEnrichmentService {
 
     void enrichTradeData(MultipartFile file, OutputStream outputStream);
+
+    /**
+     * Enriches one file of a request profiled by the caller. Worker threads and bytes read
+     * are added to {@code recording}, which the caller owns and finishes; the caller also
+     * counts the bytes it sends to the client.
+     */
+    void enrichTradeStream(InputStream inputStream, OutputStream outputStream, RequestProfiler.Recording recording);
+
+    /**
+     * Enriches the trades of one file of a batch into a writer shared by the whole batch.
+     * No header is written, and every line gets {@code source} appended as an extra column.
+     * Profiling works as for {@link #enrichTradeStream}.
+     */
+    void enrichTradeLines(InputStream inputStream, String source, PooledResponseWriter writer,
+                          RequestProfiler.Recording recording);
+
+    /**
+     * Validates and enriches a single trade.
+     *
+     * @return the enriched CSV line, or {@code null} when the trade has to be discarded
+     */
+    String enrichTrade(String date, String productId, String currency, String price);
 }
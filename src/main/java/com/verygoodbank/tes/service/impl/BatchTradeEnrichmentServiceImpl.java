@@ -0,0 +1,347 @@
+package com.verygoodbank.tes.service.impl;
+
+import com.verygoodbank.tes.dao.enums.BatchOutputFormat;
+import com.verygoodbank.tes.exception.InternalServerError;
+import com.verygoodbank.tes.io.CountingOutputStream;
+import com.verygoodbank.tes.io.PooledResponseWriter;
+import com.verygoodbank.tes.io.ResponseBufferPool;
+import com.verygoodbank.tes.profiling.RequestProfiler;
+import com.verygoodbank.tes.service.BatchTradeEnrichmentService;
+import com.verygoodbank.tes.service.TradeEnrichmentService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static com.verygoodbank.tes.exception.ResponseErrorCode.BATCH_ENTRY_TOO_LARGE;
+import static com.verygoodbank.tes.exception.ResponseErrorCode.READING_TRADE_DATA_ERROR;
+import static com.verygoodbank.tes.util.TradeCsvUtils.BATCH_SOURCE_HEADER;
+import static com.verygoodbank.tes.util.TradeCsvUtils.TRADE_RESPONSE_HEADER;
+
+/**
+ * Enriches the files of a batch.
+ * <p>
+ * Every uploaded part being enriched holds a permit of a semaphore shared by all batch
+ * requests, so {@code batch.max-concurrent-files} bounds the work of all batches together.
+ * For the CSV format the parts run in parallel; for the zip format they run one after the
+ * other, because entries of the response archive can only be written in sequence. Zip
+ * uploads are read entry by entry from the upload stream, and each entry is streamed
+ * straight into the enrichment, so neither the uploaded entries nor the enriched files
+ * are held in memory. Within a file, records are enriched in parallel on the shared
+ * {@link java.util.concurrent.ForkJoinPool}.
+ * <p>
+ * An entry that decompresses to more than {@code batch.max-entry-size} fails the batch
+ * with {@code BATCH_ENTRY_TOO_LARGE}. The check runs while the entry is read, so when it
+ * trips after part of the response has been sent, the response is cut short instead.
+ */
+@Slf4j
+@Service
+public class BatchTradeEnrichmentServiceImpl implements BatchTradeEnrichmentService {
+
+    private static final String CSV_EXTENSION = ".csv";
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final byte[] CSV_RESPONSE_HEADER =
+            (TRADE_RESPONSE_HEADER + "," + BATCH_SOURCE_HEADER + "\n").getBytes(StandardCharsets.UTF_8);
+    private static final long SLOT_POLL_MILLIS = 100;
+
+    private final TradeEnrichmentService tradeEnrichmentService;
+    private final ResponseBufferPool responseBufferPool;
+    private final RequestProfiler requestProfiler;
+    private final ExecutorService batchExecutor;
+    private final Semaphore fileSlots;
+    private final long maxEntrySizeBytes;
+
+    public BatchTradeEnrichmentServiceImpl(final TradeEnrichmentService tradeEnrichmentService,
+                                           final ResponseBufferPool responseBufferPool,
+                                           final RequestProfiler requestProfiler,
+                                           @Qualifier("batchExecutor") final ExecutorService batchExecutor,
+                                           @Value("${batch.max-concurrent-files}") final int maxConcurrentFiles,
+                                           @Value("${batch.max-entry-size}") final DataSize maxEntrySize) {
+        this.tradeEnrichmentService = tradeEnrichmentService;
+        this.responseBufferPool = responseBufferPool;
+        this.requestProfiler = requestProfiler;
+        this.batchExecutor = batchExecutor;
+        this.fileSlots = new Semaphore(maxConcurrentFiles, true);
+        this.maxEntrySizeBytes = maxEntrySize.toBytes();
+    }
+
+    @Override
+    public void enrichBatch(final List<MultipartFile> files, final BatchOutputFormat format, final OutputStream outputStream) {
+        final RequestProfiler.Recording recording = requestProfiler.start("batch");
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        try {
+            recording.track();
+            if (format == BatchOutputFormat.CSV) {
+                enrichToCsv(files, countingOutputStream, recording);
+            } else {
+                enrichToZip(files, countingOutputStream, recording);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error processing trade data batch: {}", e.getMessage());
+            throw new InternalServerError(READING_TRADE_DATA_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while processing trade data batch");
+            throw new InternalServerError(READING_TRADE_DATA_ERROR);
+        } finally {
+            recording.addBytesOut(countingOutputStream.getCount());
+            recording.finish();
+        }
+    }
+
+    private void enrichToCsv(final List<MultipartFile> files, final OutputStream outputStream,
+                             final RequestProfiler.Recording recording) throws IOException, InterruptedException {
+        outputStream.write(CSV_RESPONSE_HEADER);
+        final AtomicBoolean abandoned = new AtomicBoolean();
+        try (PooledResponseWriter writer = new PooledResponseWriter(responseBufferPool, outputStream)) {
+            final Future<?> coordinator = submitAll(files, abandoned, file -> forEachSource(file, (name, content) ->
+                    tradeEnrichmentService.enrichTradeLines(content, name, writer, recording)));
+            try (RequestProfiler.Recording.Stage ignored = recording.stage("write")) {
+                writer.drainUntil(coordinator);
+                await(coordinator);
+            } finally {
+                abandoned.set(true);
+            }
+        }
+    }
+
+    private void enrichToZip(final List<MultipartFile> files, final OutputStream outputStream,
+                             final RequestProfiler.Recording recording) throws IOException, InterruptedException {
+        final ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        final Map<String, Integer> entryNames = new HashMap<>();
+        try (RequestProfiler.Recording.Stage ignored = recording.stage("write")) {
+            for (MultipartFile file : files) {
+                fileSlots.acquire();
+                try {
+                    forEachSource(file, (name, content) -> {
+                        zipOutputStream.putNextEntry(new ZipEntry(uniqueEntryName(name, entryNames)));
+                        tradeEnrichmentService.enrichTradeStream(content, zipOutputStream, recording);
+                        zipOutputStream.closeEntry();
+                        zipOutputStream.flush();
+                    });
+                } finally {
+                    fileSlots.release();
+                }
+            }
+            zipOutputStream.finish();
+            zipOutputStream.flush();
+        }
+    }
+
+    /**
+     * Starts a coordinator that acquires a permit per uploaded part and hands the part to
+     * {@code task} on the batch executor. The coordinator stops acquiring once the batch
+     * is abandoned, completes once every task has completed, and fails with the first
+     * failure.
+     */
+    private Future<?> submitAll(final List<MultipartFile> files, final AtomicBoolean abandoned, final PartTask task) {
+        return batchExecutor.submit(() -> {
+            final List<Future<?>> tasks = new ArrayList<>();
+            try {
+                for (MultipartFile file : files) {
+                    if (!acquireSlot(abandoned)) {
+                        break;
+                    }
+                    tasks.add(batchExecutor.submit(() -> {
+                        try {
+                            if (!abandoned.get()) {
+                                task.run(file);
+                            }
+                        } finally {
+                            fileSlots.release();
+                        }
+                        return null;
+                    }));
+                }
+            } finally {
+                awaitAll(tasks);
+            }
+            for (Future<?> fileTask : tasks) {
+                fileTask.get();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Passes every CSV file of an uploaded part to {@code consumer}, one after the other.
+     * Entries of a zip upload are read straight from the upload stream.
+     */
+    private void forEachSource(final MultipartFile file, final SourceConsumer consumer) throws IOException {
+        final String fileName = file.getOriginalFilename() == null ? file.getName() : file.getOriginalFilename();
+        if (fileName.toLowerCase().endsWith(ZIP_EXTENSION)) {
+            try (ZipInputStream zipInputStream = new ZipInputStream(file.getInputStream(), StandardCharsets.UTF_8)) {
+                ZipEntry entry;
+                while ((entry = zipInputStream.getNextEntry()) != null) {
+                    if (entry.isDirectory() || !entry.getName().toLowerCase().endsWith(CSV_EXTENSION)) {
+                        log.debug("Skipping zip entry {} of {}", entry.getName(), fileName);
+                        continue;
+                    }
+                    if (entry.getSize() > maxEntrySizeBytes) {
+                        throw entryTooLarge(fileName, entry);
+                    }
+                    consumer.accept(fileName + "/" + entry.getName(), new EntryInputStream(zipInputStream, fileName, entry));
+                }
+            }
+        } else {
+            try (InputStream inputStream = file.getInputStream()) {
+                consumer.accept(fileName, inputStream);
+            }
+        }
+    }
+
+    private InternalServerError entryTooLarge(final String fileName, final ZipEntry entry) {
+        log.error("Zip entry {} of {} exceeds the limit of {} bytes", entry.getName(), fileName, maxEntrySizeBytes);
+        return new InternalServerError(BATCH_ENTRY_TOO_LARGE);
+    }
+
+    /**
+     * Acquires a file permit, giving up once the batch has been abandoned.
+     */
+    private boolean acquireSlot(final AtomicBoolean abandoned) throws InterruptedException {
+        while (!abandoned.get()) {
+            if (fileSlots.tryAcquire(SLOT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String uniqueEntryName(final String name, final Map<String, Integer> entryNames) {
+        final int occurrence = entryNames.merge(name, 1, Integer::sum);
+        if (occurrence == 1) {
+            return name;
+        }
+        final int extension = name.toLowerCase().lastIndexOf(CSV_EXTENSION);
+        return name.substring(0, extension) + "(" + occurrence + ")" + name.substring(extension);
+    }
+
+    private static void await(final Future<?> future) throws IOException, InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause() instanceof ExecutionException nested ? nested.getCause() : e.getCause();
+            if (cause instanceof InternalServerError error) {
+                throw error;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static void awaitAll(final List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            awaitQuietly(future);
+        }
+    }
+
+    private static void awaitQuietly(final Future<?> future) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartTask {
+        void run(MultipartFile file) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface SourceConsumer {
+        void accept(String name, InputStream content) throws IOException;
+    }
+
+    /**
+     * The current entry of a zip upload. Fails with {@code BATCH_ENTRY_TOO_LARGE} as soon as
+     * more than {@code batch.max-entry-size} bytes have been inflated, since the size declared
+     * in the zip headers is not trusted. Closing it leaves the upload stream open for the
+     * next entry.
+     */
+    private final class EntryInputStream extends FilterInputStream {
+
+        private final String fileName;
+        private final ZipEntry entry;
+        private long count;
+
+        private EntryInputStream(final InputStream in, final String fileName, final ZipEntry entry) {
+            super(in);
+            this.fileName = fileName;
+            this.entry = entry;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = in.read();
+            if (b != -1) {
+                checkLimit(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int read = in.read(b, off, (int) Math.min(len, maxEntrySizeBytes - count + 1));
+            if (read > 0) {
+                checkLimit(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = in.skip(Math.min(n, maxEntrySizeBytes - count + 1));
+            checkLimit(skipped);
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            // the upload stream is owned by forEachSource
+        }
+
+        private void checkLimit(final long read) {
+            count += read;
+            if (count > maxEntrySizeBytes) {
+                throw entryTooLarge(fileName, entry);
+            }
+        }
+    }
+}
@@ -8,6 +8,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -15,43 +21,151 @@ import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.verygoodbank.tes.exception.ResponseErrorCode.ERROR_LOADING_PRODUCT_DATA;
 import static com.verygoodbank.tes.util.ProductCsvUtils.PRODUCT_CSV_FORMAT;
 
+/**
+ * Holds the product index in memory.
+ * <p>
+ * The product file is parsed on a background thread started during context startup, so
+ * it no longer delays the rest of the startup. Lookups made before it has finished wait
+ * for it, and the {@code productIndex} health indicator keeps the readiness probe out of
+ * service until then. If the initial load fails, for any reason, waiting lookups fail
+ * with {@link InternalServerError} instead of blocking, the indicator reports
+ * {@code DOWN} and the liveness state turns {@code BROKEN}, so the instance is restarted
+ * as it was when a failed load aborted the startup.
+ */
 @Service
 @Slf4j
-public class ProductServiceImpl implements ProductService {
+public class ProductServiceImpl implements ProductService, ApplicationEventPublisherAware {
 
-    private Map<String, String> productMap;
+    private volatile Map<String, String> productMap;
+    private final AtomicLong snapshotVersion = new AtomicLong();
+    private final CompletableFuture<Void> initialLoad = new CompletableFuture<>();
+    private volatile String loadFailure;
+    private ApplicationEventPublisher eventPublisher;
 
     @Value("${product.file.path}")
     private String productFilePath;
 
     @PostConstruct
+    public void loadInBackground() {
+        final Thread loader = new Thread(() -> {
+            final long start = System.nanoTime();
+            try {
+                init();
+                log.info("Loaded {} products in {} ms", getProductCount(), (System.nanoTime() - start) / 1_000_000);
+            } catch (Throwable e) {
+                failInitialLoad(e, e);
+                log.error("Initial product load failed, marking the application as broken");
+                markBroken();
+            }
+        }, "product-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Spring Boot marks the application live once it has started, which overrides a failure
+     * published while the context was still starting, so the failure is published again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (loadFailure != null) {
+            markBroken();
+        }
+    }
+
+    @Override
+    public void setApplicationEventPublisher(final ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Loads the product file on the calling thread, replacing any previously loaded data.
+     */
     public void init() {
         loadProductData();
     }
 
     @Override
     public String getProductName(String productId) {
-        return productMap.getOrDefault(productId, "Missing Product Name");
+        Map<String, String> products = productMap;
+        if (products == null) {
+            products = awaitInitialLoad();
+        }
+        return products.getOrDefault(productId, "Missing Product Name");
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return productMap != null;
+    }
+
+    @Override
+    public Optional<String> getLoadFailure() {
+        return Optional.ofNullable(loadFailure);
+    }
+
+    @Override
+    public int getProductCount() {
+        final Map<String, String> products = productMap;
+        return products == null ? 0 : products.size();
+    }
+
+    @Override
+    public long getSnapshotVersion() {
+        return snapshotVersion.get();
     }
 
     private void loadProductData() {
-        productMap = new ConcurrentHashMap<>();
+        final Map<String, String> loadedProducts = new ConcurrentHashMap<>();
         try (Reader reader = Files.newBufferedReader(Paths.get(productFilePath));
              CSVParser csvParser = new CSVParser(reader, PRODUCT_CSV_FORMAT)) {
 
             for (CSVRecord csvRecord : csvParser) {
                 String productId = csvRecord.get(ProductMetadata.PRODUCT_ID.getHeader());
                 String productName = csvRecord.get(ProductMetadata.PRODUCT_NAME.getHeader());
-                productMap.put(productId, productName);
+                loadedProducts.put(productId, productName);
             }
-        } catch (IOException e) {
+            productMap = loadedProducts;
+            snapshotVersion.incrementAndGet();
+            initialLoad.complete(null);
+        } catch (IOException | RuntimeException e) {
             log.error("Error loading product data: {}", e.getMessage());
+            final InternalServerError error = new InternalServerError(ERROR_LOADING_PRODUCT_DATA);
+            failInitialLoad(error, e);
+            throw error;
+        }
+    }
+
+    /**
+     * Fails the initial load unless it has already completed; a failed reload keeps the
+     * products loaded before.
+     */
+    private void failInitialLoad(final Throwable error, final Throwable cause) {
+        if (!initialLoad.isDone()) {
+            loadFailure = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+            initialLoad.completeExceptionally(error);
+        }
+    }
+
+    private void markBroken() {
+        AvailabilityChangeEvent.publish(eventPublisher, this, LivenessState.BROKEN);
+    }
+
+    private Map<String, String> awaitInitialLoad() {
+        try {
+            initialLoad.join();
+        } catch (CompletionException e) {
             throw new InternalServerError(ERROR_LOADING_PRODUCT_DATA);
         }
+        return productMap;
     }
 }
@@ -0,0 +1,139 @@
+package com.verygoodbank.tes.service.impl;
+
+import com.verygoodbank.tes.dao.enums.TradeRequestMetadata;
+import com.verygoodbank.tes.exception.InternalServerError;
+import com.verygoodbank.tes.io.DataBufferLineSplitter;
+import com.verygoodbank.tes.profiling.RequestProfiler;
+import com.verygoodbank.tes.service.ReactiveTradeEnrichmentService;
+import com.verygoodbank.tes.service.TradeEnrichmentService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.verygoodbank.tes.exception.ResponseErrorCode.READING_TRADE_DATA_ERROR;
+import static com.verygoodbank.tes.util.TradeCsvUtils.TRADE_RESPONSE_HEADER;
+
+@Slf4j
+@Service
+public class ReactiveTradeEnrichmentServiceImpl implements ReactiveTradeEnrichmentService {
+
+    private static final byte[] RESPONSE_HEADER = (TRADE_RESPONSE_HEADER + "\n").getBytes(StandardCharsets.UTF_8);
+
+    private final TradeEnrichmentService tradeEnrichmentService;
+    private final Scheduler enrichmentScheduler;
+    private final RequestProfiler requestProfiler;
+    private final int batchSize;
+    private final int parallelism;
+
+    public ReactiveTradeEnrichmentServiceImpl(final TradeEnrichmentService tradeEnrichmentService,
+                                              final Scheduler enrichmentScheduler,
+                                              final RequestProfiler requestProfiler,
+                                              @Value("${batch-size}") final int batchSize,
+                                              @Value("${reactive.enrich.parallelism}") final int parallelism) {
+        this.tradeEnrichmentService = tradeEnrichmentService;
+        this.enrichmentScheduler = enrichmentScheduler;
+        this.requestProfiler = requestProfiler;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public Flux<DataBuffer> enrichTradeData(final Flux<DataBuffer> content, final DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            final RequestProfiler.Recording recording = requestProfiler.start("reactive");
+            final Flux<DataBuffer> counted = content.doOnNext(buffer -> {
+                recording.track();
+                recording.addBytesIn(buffer.readableByteCount());
+            });
+            return DataBufferLineSplitter.split(counted)
+                    .switchOnFirst((first, lines) -> {
+                        if (!first.hasValue()) {
+                            return lines.thenMany(Flux.empty());
+                        }
+                        final int[] columns = resolveColumns(first.get());
+                        final Flux<DataBuffer> enriched = lines.skip(1)
+                                .buffer(batchSize)
+                                .flatMapSequential(batch -> Mono.fromCallable(() -> enrichBatch(batch, columns, bufferFactory, recording))
+                                        .subscribeOn(enrichmentScheduler), parallelism);
+                        return Flux.concat(Mono.fromCallable(() -> bufferFactory.wrap(RESPONSE_HEADER)), enriched);
+                    })
+                    .doOnNext(buffer -> recording.addBytesOut(buffer.readableByteCount()))
+                    .doFinally(signal -> recording.finish());
+        });
+    }
+
+    private DataBuffer enrichBatch(final List<String> batch, final int[] columns, final DataBufferFactory bufferFactory,
+                                   final RequestProfiler.Recording recording) {
+        recording.track();
+        try (RequestProfiler.Recording.Stage ignored = recording.stage("enrich-batch")) {
+            return encodeBatch(batch, columns, bufferFactory);
+        }
+    }
+
+    private DataBuffer encodeBatch(final List<String> batch, final int[] columns, final DataBufferFactory bufferFactory) {
+        final StringBuilder sb = new StringBuilder(batch.size() * 64);
+        for (String line : batch) {
+            final String enriched = enrichTradeLine(line, columns);
+            if (enriched != null) {
+                sb.append(enriched).append('\n');
+            }
+        }
+        return bufferFactory.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String enrichTradeLine(final String line, final int[] columns) {
+        if (line.isEmpty()) {
+            return null;
+        }
+        final String[] values = splitLine(line);
+        for (int column : columns) {
+            if (column >= values.length) {
+                log.error("Invalid CSV record: {}", line);
+                return null;
+            }
+        }
+        return tradeEnrichmentService.enrichTrade(values[columns[0]], values[columns[1]], values[columns[2]], values[columns[3]]);
+    }
+
+    private int[] resolveColumns(final String headerLine) {
+        final List<String> header = Arrays.asList(splitLine(headerLine));
+        final int[] columns = Arrays.stream(TradeRequestMetadata.values())
+                .mapToInt(metadata -> header.indexOf(metadata.getHeader()))
+                .toArray();
+        if (Arrays.stream(columns).anyMatch(index -> index < 0)) {
+            log.error("Trade data header is missing required columns: {}", headerLine);
+            throw new InternalServerError(READING_TRADE_DATA_ERROR);
+        }
+        return columns;
+    }
+
+    /**
+     * Splits unquoted lines on commas directly and falls back to the CSV parser only
+     * for lines that contain quotes.
+     */
+    private static String[] splitLine(final String line) {
+        if (line.indexOf('"') < 0) {
+            return line.split(",", -1);
+        }
+        try (CSVParser parser = CSVParser.parse(line, CSVFormat.DEFAULT)) {
+            final List<CSVRecord> records = parser.getRecords();
+            return records.isEmpty() ? new String[0] : records.get(0).values();
+        } catch (IOException | IllegalStateException e) {
+            log.error("Invalid CSV record: {}", line);
+            return new String[0];
+        }
+    }
+}
@@ -1,79 +1,251 @@
 package com.verygoodbank.tes.service.impl;
 
 import com.verygoodbank.tes.dao.enums.TradeRequestMetadata;
-import com.verygoodbank.tes.dao.enums.TradeResponseMetadata;
 import com.verygoodbank.tes.exception.InternalServerError;
+import com.verygoodbank.tes.io.CountingInputStream;
+import com.verygoodbank.tes.io.CountingOutputStream;
+import com.verygoodbank.tes.io.PooledResponseWriter;
+import com.verygoodbank.tes.io.ResponseBufferPool;
+import com.verygoodbank.tes.profiling.RequestProfiler;
 import com.verygoodbank.tes.service.ProductService;
 import com.verygoodbank.tes.service.TradeEnrichmentService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 import static com.verygoodbank.tes.exception.ResponseErrorCode.READING_TRADE_DATA_ERROR;
 import static com.verygoodbank.tes.util.TradeCsvUtils.TRADE_CSV_FORMAT;
+import static com.verygoodbank.tes.util.TradeCsvUtils.TRADE_RESPONSE_HEADER;
+import static com.verygoodbank.tes.util.TradeCsvUtils.escapeCsvValue;
 
+/**
+ * Enriches trade files on the shared {@link ForkJoinPool}.
+ * <p>
+ * One reader per file parses the records and hands them to the pool in batches of
+ * {@code batch-size}, with at most {@code enrich.parallelism} batches in flight. The
+ * reader writes the enriched batches to the response in input order. Pool workers never
+ * wait on the response, so when a client stops reading only its reader stalls: parsing
+ * of that file pauses and the pool keeps serving other requests.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TradeEnrichmentServiceImpl implements TradeEnrichmentService {
 
     private final ProductService productService;
     private final ForkJoinPool forkJoinPool;
+    private final ResponseBufferPool responseBufferPool;
+    private final RequestProfiler requestProfiler;
+    private final ExecutorService readerExecutor;
+    private final int batchSize;
+    private final int parallelism;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final byte[] RESPONSE_HEADER = (TRADE_RESPONSE_HEADER + "\n").getBytes(StandardCharsets.UTF_8);
     private final Map<String, Boolean> dateCache = new HashMap<>();
 
+    public TradeEnrichmentServiceImpl(final ProductService productService,
+                                      final ForkJoinPool forkJoinPool,
+                                      final ResponseBufferPool responseBufferPool,
+                                      final RequestProfiler requestProfiler,
+                                      @Qualifier("readerExecutor") final ExecutorService readerExecutor,
+                                      @Value("${batch-size}") final int batchSize,
+                                      @Value("${enrich.parallelism}") final int parallelism) {
+        this.productService = productService;
+        this.forkJoinPool = forkJoinPool;
+        this.responseBufferPool = responseBufferPool;
+        this.requestProfiler = requestProfiler;
+        this.readerExecutor = readerExecutor;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
     @Override
     public void enrichTradeData(final MultipartFile file, OutputStream outputStream) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
-             CSVParser csvParser = new CSVParser(reader, TRADE_CSV_FORMAT);
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
-
-            writer.write(getResponseHeader());
-            writer.newLine();
-
-            forkJoinPool.submit(() ->
-                    csvParser.stream()
-                            .parallel()
-                            .map(this::enrichTradeLine)
-                            .filter(Objects::nonNull)
-                            .forEach(line -> {
-                                try {
-                                    writer.write(line);
-                                    writer.newLine();
-                                } catch (IOException e) {
-                                    throw new UncheckedIOException(e);
-                                }
-                            })
-            ).get();
-
-            writer.flush();
-        } catch (IOException | InterruptedException | ExecutionException e) {
+        final RequestProfiler.Recording recording = requestProfiler.start("servlet");
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        try (InputStream inputStream = file.getInputStream()) {
+            enrichTradeStream(inputStream, countingOutputStream, recording);
+        } catch (IOException e) {
+            log.error("Error processing trade data: {}", e.getMessage());
+            throw new InternalServerError(READING_TRADE_DATA_ERROR);
+        } finally {
+            recording.addBytesOut(countingOutputStream.getCount());
+            recording.finish();
+        }
+    }
+
+    @Override
+    public void enrichTradeStream(final InputStream inputStream, final OutputStream outputStream,
+                                  final RequestProfiler.Recording recording) {
+        final CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+        Future<?> reader = null;
+        try (PooledResponseWriter writer = new PooledResponseWriter(responseBufferPool, outputStream)) {
+            recording.track();
+            outputStream.write(RESPONSE_HEADER);
+
+            reader = readerExecutor.submit(() -> {
+                enrichRecords(countingInputStream, "", writer, recording);
+                return null;
+            });
+
+            try (RequestProfiler.Recording.Stage ignored = recording.stage("write")) {
+                writer.drainUntil(reader);
+            }
+            reader.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = rootCause(e);
+            if (cause instanceof InternalServerError error) {
+                throw error;
+            }
+            log.error("Error processing trade data: {}", cause.getMessage());
+            throw new InternalServerError(READING_TRADE_DATA_ERROR);
+        } catch (IOException | InterruptedException e) {
             log.error("Error processing trade data: {}", e.getMessage());
             throw new InternalServerError(READING_TRADE_DATA_ERROR);
+        } finally {
+            // the writer is closed by now, so a reader still running stops at its next write
+            awaitQuietly(reader);
+            recording.addBytesIn(countingInputStream.getCount());
+        }
+    }
+
+    @Override
+    public void enrichTradeLines(final InputStream inputStream, final String source, final PooledResponseWriter writer,
+                                 final RequestProfiler.Recording recording) {
+        final CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+        try {
+            enrichRecords(countingInputStream, "," + escapeCsvValue(source), writer, recording);
+        } catch (ExecutionException e) {
+            final Throwable cause = rootCause(e);
+            if (cause instanceof InternalServerError error) {
+                throw error;
+            }
+            log.error("Error processing trade data from {}: {}", source, cause.getMessage());
+            throw new InternalServerError(READING_TRADE_DATA_ERROR);
+        } catch (IOException | UncheckedIOException | InterruptedException e) {
+            log.error("Error processing trade data from {}: {}", source, e.getMessage());
+            throw new InternalServerError(READING_TRADE_DATA_ERROR);
+        } finally {
+            recording.addBytesIn(countingInputStream.getCount());
+        }
+    }
+
+    /**
+     * Runs on the reader of a file. Submits batches of records to the pool and writes the
+     * enriched batches to {@code writer} in order, which blocks this thread, and only this
+     * thread, while the client is not reading.
+     */
+    private void enrichRecords(final InputStream inputStream, final String suffix, final PooledResponseWriter writer,
+                               final RequestProfiler.Recording recording)
+            throws IOException, InterruptedException, ExecutionException {
+        final Deque<ForkJoinTask<List<String>>> inFlight = new ArrayDeque<>(parallelism);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+             CSVParser csvParser = new CSVParser(reader, TRADE_CSV_FORMAT)) {
+            recording.track();
+            List<CSVRecord> batch = new ArrayList<>(batchSize);
+            for (CSVRecord csvRecord : csvParser) {
+                batch.add(csvRecord);
+                if (batch.size() == batchSize) {
+                    submitBatch(batch, suffix, inFlight, writer, recording);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submitBatch(batch, suffix, inFlight, writer, recording);
+            }
+            while (!inFlight.isEmpty()) {
+                writeLines(inFlight.poll().get(), writer);
+            }
+        } finally {
+            inFlight.forEach(task -> task.cancel(false));
+        }
+    }
+
+    private void submitBatch(final List<CSVRecord> batch, final String suffix,
+                             final Deque<ForkJoinTask<List<String>>> inFlight, final PooledResponseWriter writer,
+                             final RequestProfiler.Recording recording) throws InterruptedException, ExecutionException {
+        if (inFlight.size() >= parallelism) {
+            writeLines(inFlight.poll().get(), writer);
+        }
+        inFlight.add(forkJoinPool.submit(() -> enrichBatch(batch, suffix, recording)));
+    }
+
+    private List<String> enrichBatch(final List<CSVRecord> batch, final String suffix,
+                                     final RequestProfiler.Recording recording) {
+        recording.track();
+        try (RequestProfiler.Recording.Stage ignored = recording.stage("enrich-batch")) {
+            final List<String> lines = new ArrayList<>(batch.size());
+            for (CSVRecord csvRecord : batch) {
+                final String line = enrichTradeLine(csvRecord);
+                if (line != null) {
+                    lines.add(suffix.isEmpty() ? line : line + suffix);
+                }
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Unwraps the failure of the reader or of a worker, so that an {@link InternalServerError}
+     * such as a failed product load keeps its error code.
+     */
+    private static Throwable rootCause(final ExecutionException e) {
+        Throwable cause = e;
+        while (cause instanceof ExecutionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static void writeLines(final List<String> lines, final PooledResponseWriter writer) {
+        for (String line : lines) {
+            writer.writeLine(line);
+        }
+    }
+
+    private static void awaitQuietly(final Future<?> future) {
+        if (future == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -84,23 +256,28 @@ public class TradeEnrichmentServiceImpl implements TradeEnrichmentService {
             String currency = csvRecord.get(TradeRequestMetadata.CURRENCY.getHeader());
             String price = csvRecord.get(TradeRequestMetadata.PRICE.getHeader());
 
-            if (!isValidDate(date)) {
-                log.error("Invalid date format in the record: {}", csvRecord);
-                return null;
-            }
-
-            String productName = productService.getProductName(productId);
-            if (productName.equals("Missing Product Name")) {
-                log.error("Missing product mapping for ID: {}", productId);
-            }
-
-            return buildCsvLine(date, productId, productName, currency, price);
+            return enrichTrade(date, productId, currency, price);
         } catch (IllegalArgumentException e) {
             System.err.println("Invalid CSV record: " + e.getMessage());
             return null;
         }
     }
 
+    @Override
+    public String enrichTrade(final String date, final String productId, final String currency, final String price) {
+        if (!isValidDate(date)) {
+            log.error("Invalid date format in the record: {},{},{},{}", date, productId, currency, price);
+            return null;
+        }
+
+        String productName = productService.getProductName(productId);
+        if (productName.equals("Missing Product Name")) {
+            log.error("Missing product mapping for ID: {}", productId);
+        }
+
+        return buildCsvLine(date, productId, productName, currency, price);
+    }
+
     public boolean isValidDate(String date) {
         Boolean cachedResult = dateCache.get(date);
         if (cachedResult != null) {
@@ -126,10 +303,4 @@ public class TradeEnrichmentServiceImpl implements TradeEnrichmentService {
                 .append(price);
         return sb.toString();
     }
-
-    private String getResponseHeader() {
-        return Arrays.stream(TradeResponseMetadata.values())
-                .map(TradeResponseMetadata::getHeader)
-                .collect(Collectors.joining(","));
-    }
 }
@@ -1,10 +1,27 @@
 package com.verygoodbank.tes.util;
 
+import com.verygoodbank.tes.dao.enums.TradeResponseMetadata;
 import org.apache.commons.csv.CSVFormat;
 
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
 public class TradeCsvUtils {
     public static final CSVFormat TRADE_CSV_FORMAT = CSVFormat.DEFAULT.builder()
             .setHeader()
             .setSkipHeaderRecord(true)
             .build();
+
+    public static final String TRADE_RESPONSE_HEADER = Arrays.stream(TradeResponseMetadata.values())
+            .map(TradeResponseMetadata::getHeader)
+            .collect(Collectors.joining(","));
+
+    public static final String BATCH_SOURCE_HEADER = "source";
+
+    public static String escapeCsvValue(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
 }
@@ -0,0 +1,63 @@
+package com.verygoodbank.tes.web.controller;
+
+import com.verygoodbank.tes.service.ReactiveTradeEnrichmentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+/**
+ * WebFlux variant of {@link TradeEnrichmentController}, active when the application runs
+ * as a reactive web application (the {@code reactive} profile). The uploaded {@code file}
+ * part is consumed as a stream of {@link DataBuffer}s and never stored on disk.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("api/v1")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveTradeEnrichmentController {
+
+    private static final String FILE_PART = "file";
+
+    private final ReactiveTradeEnrichmentService reactiveTradeEnrichmentService;
+
+    @PostMapping(value = "/enrich", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Flux<DataBuffer>> enrichTradeData(@RequestBody Flux<PartEvent> parts, ServerHttpResponse response) {
+        final Flux<DataBuffer> content = parts.windowUntil(PartEvent::isLast)
+                .concatMap(partEvents -> partEvents.switchOnFirst((first, events) -> {
+                    if (first.hasValue() && first.get() instanceof FilePartEvent filePart && FILE_PART.equals(filePart.name())) {
+                        if (!filePart.filename().toLowerCase().endsWith(".csv")) {
+                            return events.doOnNext(event -> DataBufferUtils.release(event.content()))
+                                    .thenMany(Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST)));
+                        }
+                        log.debug("enrichTradeData POST: file {} received for processing", filePart.filename());
+                        return events.map(PartEvent::content);
+                    }
+                    return events.doOnNext(event -> DataBufferUtils.release(event.content()))
+                            .thenMany(Flux.empty());
+                }));
+
+        final Flux<DataBuffer> enriched = reactiveTradeEnrichmentService.enrichTradeData(content, response.bufferFactory())
+                .switchIfEmpty(Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST)));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=enriched_trades.csv")
+                .body(enriched);
+    }
+}
@@ -1,11 +1,17 @@
 package com.verygoodbank.tes.web.controller;
 
 
+import com.verygoodbank.tes.cache.EnrichmentResultCache;
 import com.verygoodbank.tes.dao.Trade;
+import com.verygoodbank.tes.dao.enums.BatchOutputFormat;
+import com.verygoodbank.tes.io.CountingOutputStream;
+import com.verygoodbank.tes.profiling.RequestProfiler;
+import com.verygoodbank.tes.service.BatchTradeEnrichmentService;
 import com.verygoodbank.tes.service.TradeEnrichmentService;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
@@ -21,7 +27,9 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -30,12 +38,16 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("api/v1")
 @RequiredArgsConstructor
 @Slf4j
 public class TradeEnrichmentController {
 
     private final TradeEnrichmentService tradeEnrichmentService;
+    private final EnrichmentResultCache enrichmentResultCache;
+    private final BatchTradeEnrichmentService batchTradeEnrichmentService;
+    private final RequestProfiler requestProfiler;
 
     @PostMapping("/enrich")
     public ResponseEntity<Void> enrichTradeData(@RequestParam("file") MultipartFile file, HttpServletResponse response) {
@@ -50,7 +62,11 @@ public class TradeEnrichmentController {
             response.setContentType("text/csv");
             response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=enriched_trades.csv");
 
-            tradeEnrichmentService.enrichTradeData(file, response.getOutputStream());
+            if (enrichmentResultCache.isEnabled()) {
+                enrichTradeDataCached(file, response.getOutputStream());
+            } else {
+                tradeEnrichmentService.enrichTradeData(file, response.getOutputStream());
+            }
             response.flushBuffer();
 
             return ResponseEntity.ok().build();
@@ -59,6 +75,64 @@ public class TradeEnrichmentController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
 
+    @PostMapping("/enrich/batch")
+    public ResponseEntity<Void> enrichTradeDataBatch(@RequestParam("files") List<MultipartFile> files,
+                                                     @RequestParam(value = "format", defaultValue = "zip") String format,
+                                                     HttpServletResponse response) {
+        final BatchOutputFormat outputFormat = BatchOutputFormat.fromParameter(format).orElse(null);
+        if (outputFormat == null || files.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (MultipartFile file : files) {
+            final String fileName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+            if (file.isEmpty() || !(fileName.endsWith(".csv") || fileName.endsWith(".zip"))) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        log.debug("enrichTradeDataBatch POST: {} files received for processing, output format {}", files.size(), outputFormat);
+        try {
+            if (outputFormat == BatchOutputFormat.ZIP) {
+                response.setContentType("application/zip");
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=enriched_trades.zip");
+            } else {
+                response.setContentType("text/csv");
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=enriched_trades.csv");
+            }
+            batchTradeEnrichmentService.enrichBatch(files, outputFormat, response.getOutputStream());
+            response.flushBuffer();
+
+            return ResponseEntity.ok().build();
+        } catch (IOException e) {
+            log.error("Error processing batch: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
+    /**
+     * Profiled as one request, like an uncached upload: the hash pass over the upload counts
+     * as bytes in, and the response counts as bytes out whether it is served from the cache
+     * or enriched.
+     */
+    private void enrichTradeDataCached(final MultipartFile file, final OutputStream outputStream) throws IOException {
+        final RequestProfiler.Recording recording = requestProfiler.start("servlet");
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        try {
+            recording.track();
+            final String key = enrichmentResultCache.key(file);
+            recording.addBytesIn(file.getSize());
+            if (enrichmentResultCache.serve(key, countingOutputStream)) {
+                log.debug("enrichTradeData POST: file {} served from result cache", file.getName());
+                return;
+            }
+            try (EnrichmentResultCache.Entry entry = enrichmentResultCache.open(key, countingOutputStream);
+                 InputStream inputStream = file.getInputStream()) {
+                tradeEnrichmentService.enrichTradeStream(inputStream, entry.getOutputStream(), recording);
+                entry.commit();
+            }
+        } finally {
+            recording.addBytesOut(countingOutputStream.getCount());
+            recording.finish();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.verygoodbank.tes.web.controller.handler;
 import com.verygoodbank.tes.exception.InternalServerError;
 import com.verygoodbank.tes.web.response.ErrorResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -14,6 +15,7 @@ import java.util.List;
 
 @Slf4j
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler({InternalServerError.class})
@@ -0,0 +1,124 @@
+package com.verygoodbank.tes.cache;
+
+import com.verygoodbank.tes.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EnrichmentResultCacheTest {
+
+    @TempDir
+    Path cacheDirectory;
+
+    @Mock
+    private ProductService productService;
+
+    private EnrichmentResultCache enrichmentResultCache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        enrichmentResultCache = new EnrichmentResultCache(productService, true, cacheDirectory.toString(), DataSize.ofBytes(20));
+        enrichmentResultCache.init();
+    }
+
+    @Test
+    void givenCommittedEntry_whenServe_thenReturnCachedResult() throws IOException {
+        // given
+        when(productService.getSnapshotVersion()).thenReturn(1L);
+        final String key = enrichmentResultCache.key(file("trades-1"));
+        final ByteArrayOutputStream firstResponse = new ByteArrayOutputStream();
+        try (EnrichmentResultCache.Entry entry = enrichmentResultCache.open(key, firstResponse)) {
+            entry.getOutputStream().write("enriched-1".getBytes(StandardCharsets.UTF_8));
+            entry.commit();
+        }
+
+        // when
+        final ByteArrayOutputStream secondResponse = new ByteArrayOutputStream();
+        final boolean served = enrichmentResultCache.serve(enrichmentResultCache.key(file("trades-1")), secondResponse);
+
+        // then
+        assertTrue(served);
+        assertEquals("enriched-1", firstResponse.toString(StandardCharsets.UTF_8));
+        assertEquals("enriched-1", secondResponse.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givenUncommittedEntry_whenServe_thenMiss() throws IOException {
+        // given
+        when(productService.getSnapshotVersion()).thenReturn(1L);
+        final String key = enrichmentResultCache.key(file("trades-1"));
+        try (EnrichmentResultCache.Entry entry = enrichmentResultCache.open(key, new ByteArrayOutputStream())) {
+            entry.getOutputStream().write("partial".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // when & then
+        assertFalse(enrichmentResultCache.serve(key, new ByteArrayOutputStream()));
+        try (var files = Files.list(cacheDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void givenCacheOverMaxSize_whenStore_thenLeastRecentlyUsedEvicted() throws IOException {
+        // given
+        when(productService.getSnapshotVersion()).thenReturn(1L);
+        final String first = store("trades-1", "result-one");
+        final String second = store("trades-2", "result-two");
+        assertTrue(enrichmentResultCache.serve(first, new ByteArrayOutputStream()));
+
+        // when
+        final String third = store("trades-3", "result-333");
+
+        // then
+        assertTrue(enrichmentResultCache.serve(first, new ByteArrayOutputStream()));
+        assertFalse(enrichmentResultCache.serve(second, new ByteArrayOutputStream()));
+        assertTrue(enrichmentResultCache.serve(third, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void givenProductDataReloaded_whenKey_thenPreviousEntriesInvalidated() throws IOException {
+        // given
+        when(productService.getSnapshotVersion()).thenReturn(1L);
+        final String before = store("trades-1", "result-one");
+
+        // when
+        when(productService.getSnapshotVersion()).thenReturn(2L);
+        final String after = enrichmentResultCache.key(file("trades-1"));
+
+        // then
+        assertNotEquals(before, after);
+        assertFalse(enrichmentResultCache.serve(before, new ByteArrayOutputStream()));
+        assertFalse(enrichmentResultCache.serve(after, new ByteArrayOutputStream()));
+    }
+
+    private String store(final String content, final String result) throws IOException {
+        final String key = enrichmentResultCache.key(file(content));
+        try (EnrichmentResultCache.Entry entry = enrichmentResultCache.open(key, new ByteArrayOutputStream())) {
+            entry.getOutputStream().write(result.getBytes(StandardCharsets.UTF_8));
+            entry.commit();
+        }
+        return key;
+    }
+
+    private static MockMultipartFile file(final String content) {
+        return new MockMultipartFile("file", "trades.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
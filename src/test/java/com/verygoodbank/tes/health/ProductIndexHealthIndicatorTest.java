@@ -0,0 +1,65 @@
+package com.verygoodbank.tes.health;
+
+import com.verygoodbank.tes.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductIndexHealthIndicatorTest {
+
+    @Mock
+    private ProductService productService;
+
+    @InjectMocks
+    private ProductIndexHealthIndicator productIndexHealthIndicator;
+
+    @Test
+    void givenProductsLoading_whenHealth_thenOutOfService() {
+        // given
+        when(productService.isLoaded()).thenReturn(false);
+
+        // when
+        Health health = productIndexHealthIndicator.health();
+
+        // then
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+    }
+
+    @Test
+    void givenFailedLoad_whenHealth_thenDownWithFailure() {
+        // given
+        when(productService.getLoadFailure()).thenReturn(Optional.of("NoSuchFileException: products.csv"));
+
+        // when
+        Health health = productIndexHealthIndicator.health();
+
+        // then
+        assertEquals(Status.DOWN, health.getStatus());
+        assertEquals("NoSuchFileException: products.csv", health.getDetails().get("error"));
+    }
+
+    @Test
+    void givenProductsLoaded_whenHealth_thenUpWithProductCount() {
+        // given
+        when(productService.isLoaded()).thenReturn(true);
+        when(productService.getProductCount()).thenReturn(3);
+        when(productService.getSnapshotVersion()).thenReturn(1L);
+
+        // when
+        Health health = productIndexHealthIndicator.health();
+
+        // then
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(3, health.getDetails().get("products"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.verygoodbank.tes.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PooledResponseWriterTest {
+
+    private ResponseBufferPool responseBufferPool;
+
+    @BeforeEach
+    void setUp() {
+        responseBufferPool = new ResponseBufferPool(32, 4, 2, Duration.ofMillis(10));
+    }
+
+    @Test
+    void givenLinesFromParallelProducers_whenDrain_thenAllLinesWrittenAndBuffersReturned() throws Exception {
+        // given
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final List<String> expected = IntStream.range(0, 1_000)
+                .mapToObj(i -> "20240101," + i + ",EUR,10.0")
+                .toList();
+
+        // when
+        try (PooledResponseWriter writer = new PooledResponseWriter(responseBufferPool, outputStream)) {
+            final CompletableFuture<Void> producers = CompletableFuture.runAsync(() ->
+                    expected.parallelStream().forEach(writer::writeLine));
+            writer.drainUntil(producers);
+            producers.get();
+        }
+
+        // then
+        final List<String> actual = Arrays.stream(outputStream.toString(StandardCharsets.UTF_8).split("\n"))
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(expected.stream().sorted().toList(), actual);
+        assertEquals(0, responseBufferPool.getInUse());
+    }
+
+    @Test
+    void givenLineLargerThanBuffer_whenDrain_thenLineWrittenWhole() throws Exception {
+        // given
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final String longLine = "x".repeat(100);
+
+        // when
+        try (PooledResponseWriter writer = new PooledResponseWriter(responseBufferPool, outputStream)) {
+            writer.writeLine("short");
+            writer.writeLine(longLine);
+            writer.drainUntil(CompletableFuture.completedFuture(null));
+        }
+
+        // then
+        assertEquals("short\n" + longLine + "\n", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givenSlowProducer_whenFlushIntervalElapses_thenPartialBufferFlushed() throws Exception {
+        // given
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final CountDownLatch flushed = new CountDownLatch(1);
+        final OutputStream flushTracking = new OutputStream() {
+            @Override
+            public void write(final int b) {
+                outputStream.write(b);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+                outputStream.write(b, off, len);
+            }
+
+            @Override
+            public void flush() {
+                if (outputStream.size() > 0) {
+                    flushed.countDown();
+                }
+            }
+        };
+
+        // when
+        try (PooledResponseWriter writer = new PooledResponseWriter(responseBufferPool, flushTracking)) {
+            final CompletableFuture<Void> producers = CompletableFuture.runAsync(() -> {
+                writer.writeLine("first");
+                try {
+                    assertTrue(flushed.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            writer.drainUntil(producers);
+            producers.get();
+        }
+
+        // then
+        assertEquals("first\n", outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givenFailingClient_whenDrain_thenProducersStopWithError() {
+        // given
+        final OutputStream failing = new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        final PooledResponseWriter writer = new PooledResponseWriter(responseBufferPool, failing);
+        final CompletableFuture<Void> producers = CompletableFuture.runAsync(() ->
+                IntStream.range(0, 1_000).forEach(i -> writer.writeLine("20240101," + i + ",EUR,10.0")));
+
+        // when & then
+        assertThrows(IOException.class, () -> writer.drainUntil(producers));
+        final Exception exception = assertThrows(Exception.class, () -> producers.get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof UncheckedIOException);
+        writer.close();
+    }
+}
@@ -0,0 +1,46 @@
+package com.verygoodbank.tes.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal {@code --name=value} argument parser shared by the load-test tools.
+ */
+class CommandLineOptions {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    CommandLineOptions(final String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            final int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+    }
+
+    String get(final String name, final String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    String require(final String name) {
+        final String value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing required option --" + name);
+        }
+        return value;
+    }
+
+    int getInt(final String name, final int defaultValue) {
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : defaultValue;
+    }
+
+    long getLong(final String name, final long defaultValue) {
+        return values.containsKey(name) ? Long.parseLong(values.get(name)) : defaultValue;
+    }
+
+    double getDouble(final String name, final double defaultValue) {
+        return values.containsKey(name) ? Double.parseDouble(values.get(name)) : defaultValue;
+    }
+}
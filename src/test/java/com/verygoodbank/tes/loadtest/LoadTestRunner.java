@@ -0,0 +1,202 @@
+package com.verygoodbank.tes.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Drives {@code /api/v1/enrich} with a trade file at a fixed concurrency and reports
+ * throughput, latency percentiles, server GC time and peak RSS.
+ * <p>
+ * GC time is read from the actuator {@code jvm.gc.pause} metric before and after the run.
+ * Peak RSS is sampled from {@code /proc/<pid>/status}, so it is only reported when the
+ * server runs on the same Linux host and {@code --pid} is given.
+ * <pre>
+ * mvn -Ploadtest test-compile exec:java \
+ *     -Dexec.args="--file=target/loadtest/trade.csv --concurrency=8 --requests=64 --pid=12345"
+ * </pre>
+ */
+public class LoadTestRunner {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final URI endpoint;
+    private final URI gcMetric;
+    private final Path tradeFile;
+    private final Long pid;
+
+    LoadTestRunner(final URI baseUri, final Path tradeFile, final Long pid) {
+        this.endpoint = baseUri.resolve("/api/v1/enrich");
+        this.gcMetric = baseUri.resolve("/actuator/metrics/jvm.gc.pause");
+        this.tradeFile = tradeFile;
+        this.pid = pid;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final CommandLineOptions options = new CommandLineOptions(args);
+        final String pid = options.get("pid", null);
+        final LoadTestRunner runner = new LoadTestRunner(
+                URI.create(options.get("url", "http://localhost:8080")),
+                Paths.get(options.require("file")),
+                pid == null ? null : Long.parseLong(pid));
+
+        runner.run(options.getInt("warmup", 4), 1);
+        runner.run(options.getInt("requests", 32), options.getInt("concurrency", 4)).print();
+    }
+
+    Report run(final int requests, final int concurrency) throws Exception {
+        final long tradesPerRequest = countTrades();
+        final double gcSecondsBefore = readGcSeconds();
+        final AtomicLong peakRssKb = new AtomicLong(-1);
+        final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        if (pid != null) {
+            sampler.scheduleAtFixedRate(() -> peakRssKb.accumulateAndGet(readRssKb(), Math::max), 0, 100, TimeUnit.MILLISECONDS);
+        }
+
+        final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        final AtomicInteger remaining = new AtomicInteger(requests);
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicLong bytesReceived = new AtomicLong();
+        final ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        final long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            clients.execute(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    final long requestStart = System.nanoTime();
+                    try {
+                        final HttpResponse<InputStream> response = httpClient.send(newRequest(), HttpResponse.BodyHandlers.ofInputStream());
+                        try (InputStream body = response.body()) {
+                            bytesReceived.addAndGet(body.transferTo(OutputStream.nullOutputStream()));
+                        }
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies.add(System.nanoTime() - requestStart);
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.DAYS);
+        final long elapsedNanos = System.nanoTime() - start;
+        sampler.shutdownNow();
+
+        final long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        final double gcSecondsAfter = readGcSeconds();
+        return new Report(requests, concurrency, failures.get(), elapsedNanos, tradesPerRequest * requests,
+                Files.size(tradeFile) * requests, bytesReceived.get(), sorted,
+                gcSecondsBefore < 0 || gcSecondsAfter < 0 ? -1 : gcSecondsAfter - gcSecondsBefore,
+                peakRssKb.get());
+    }
+
+    private HttpRequest newRequest() throws IOException {
+        final String boundary = "----tes-loadtest-" + UUID.randomUUID();
+        final byte[] prefix = ("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + tradeFile.getFileName() + "\"\r\n"
+                + "Content-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        final byte[] suffix = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofByteArray(prefix),
+                        HttpRequest.BodyPublishers.ofFile(tradeFile),
+                        HttpRequest.BodyPublishers.ofByteArray(suffix)))
+                .build();
+    }
+
+    private long countTrades() throws IOException {
+        try (Stream<String> lines = Files.lines(tradeFile, StandardCharsets.UTF_8)) {
+            return Math.max(lines.count() - 1, 0);
+        }
+    }
+
+    private double readGcSeconds() {
+        try {
+            final HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(gcMetric).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return -1;
+            }
+            for (JsonNode measurement : OBJECT_MAPPER.readTree(response.body()).path("measurements")) {
+                if ("TOTAL_TIME".equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+            return -1;
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private long readRssKb() {
+        try {
+            final List<String> status = Files.readAllLines(Paths.get("/proc", pid.toString(), "status"));
+            return status.stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.replaceAll("\\D", ""))
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(-1);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    record Report(int requests, int concurrency, int failures, long elapsedNanos, long trades, long bytesSent,
+                  long bytesReceived, long[] latenciesNanos, double gcSeconds, long peakRssKb) {
+
+        double percentileMillis(final double percentile) {
+            if (latenciesNanos.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(percentile / 100.0 * latenciesNanos.length) - 1;
+            return latenciesNanos[Math.max(index, 0)] / 1_000_000.0;
+        }
+
+        void print() {
+            final double seconds = elapsedNanos / 1_000_000_000.0;
+            System.out.printf("Requests:        %d (%d failed) at concurrency %d in %.2f s%n", requests, failures, concurrency, seconds);
+            System.out.printf("Throughput:      %.2f req/s, %.0f trades/s, %.1f MB/s in, %.1f MB/s out%n",
+                    requests / seconds, trades / seconds, bytesSent / seconds / 1_048_576, bytesReceived / seconds / 1_048_576);
+            System.out.printf("Latency (ms):    p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99),
+                    latenciesNanos.length == 0 ? 0 : latenciesNanos[latenciesNanos.length - 1] / 1_000_000.0);
+            System.out.printf("Server GC time:  %s%n", gcSeconds < 0 ? "n/a (actuator metrics unavailable)" : String.format("%.3f s", gcSeconds));
+            System.out.printf("Server peak RSS: %s%n", peakRssKb < 0 ? "n/a (pass --pid on the server host)" : (peakRssKb / 1024) + " MB");
+        }
+    }
+}
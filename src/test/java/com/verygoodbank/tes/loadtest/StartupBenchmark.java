@@ -0,0 +1,131 @@
+package com.verygoodbank.tes.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cold-start time and footprint of the packaged service.
+ * <p>
+ * Each run launches a fresh JVM, polls the readiness URL until it answers 200 and then
+ * reads the resident set size of the process from {@code /proc/<pid>/status}. Medians
+ * over all runs are reported, so RSS is only available on Linux.
+ * <pre>
+ * mvn -Ploadtest test-compile exec:java -Dexec.mainClass=com.verygoodbank.tes.loadtest.StartupBenchmark \
+ *     -Dexec.args="--jar=target/cds/trade-enrichment-service-0.0.1-SNAPSHOT-cds.jar --runs=5 \
+ *                  '--jvm-args=-Dspring.aot.enabled=true -XX:SharedArchiveFile=target/cds/application.jsa' \
+ *                  --app-args=--product.file.path=target/loadtest/product.csv"
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final List<String> command;
+    private final URI readinessUri;
+
+    StartupBenchmark(final List<String> command, final URI readinessUri) {
+        this.command = command;
+        this.readinessUri = readinessUri;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final CommandLineOptions options = new CommandLineOptions(args);
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(split(options.get("jvm-args", "")));
+        command.add("-jar");
+        command.add(options.require("jar"));
+        command.addAll(split(options.get("app-args", "")));
+        final StartupBenchmark benchmark = new StartupBenchmark(command,
+                URI.create(options.get("url", "http://localhost:8080/actuator/health/readiness")));
+
+        final int runs = options.getInt("runs", 5);
+        final long[] readyMillis = new long[runs];
+        final long[] rssKb = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            final long[] run = benchmark.run();
+            readyMillis[i] = run[0];
+            rssKb[i] = run[1];
+            System.out.printf("Run %d: ready in %d ms, RSS %s%n", i + 1, readyMillis[i], rssKb[i] < 0 ? "n/a" : (rssKb[i] / 1024) + " MB");
+        }
+        System.out.printf("Command:         %s%n", String.join(" ", command));
+        System.out.printf("Time to ready:   median %d ms over %d runs%n", median(readyMillis), runs);
+        System.out.printf("RSS when ready:  %s%n", median(rssKb) < 0 ? "n/a (requires /proc)" : "median " + median(rssKb) / 1024 + " MB");
+    }
+
+    /**
+     * @return the time to ready in milliseconds and the RSS in kB at that point
+     */
+    long[] run() throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (!isReady()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Service exited with code " + process.exitValue() + " before becoming ready");
+                }
+                if (System.nanoTime() - start > START_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException("Service did not become ready within " + START_TIMEOUT);
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            final long readyMillis = (System.nanoTime() - start) / 1_000_000;
+            return new long[]{readyMillis, readRssKb(process.pid())};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private boolean isReady() throws InterruptedException {
+        try {
+            return httpClient.send(HttpRequest.newBuilder(readinessUri).GET().build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long readRssKb(final long pid) {
+        try {
+            return Files.readAllLines(Path.of("/proc", Long.toString(pid), "status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> line.replaceAll("\\D", ""))
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(-1);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long median(final long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static List<String> split(final String args) {
+        return args.isBlank() ? List.of() : Arrays.asList(args.trim().split("\\s+"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.verygoodbank.tes.loadtest;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Streams deterministic product and trade CSV files of any size.
+ * <p>
+ * The same seed and options always produce byte-identical files. Invalid dates, unknown
+ * product ids and duplicated rows are mixed in at the configured ratios.
+ * <pre>
+ * mvn -Ploadtest test-compile exec:java -Dexec.mainClass=com.verygoodbank.tes.loadtest.TradeDataGenerator \
+ *     -Dexec.args="--out=target/loadtest --trades=5000000 --products=100000 --seed=42"
+ * </pre>
+ */
+@Getter
+@Builder
+public class TradeDataGenerator {
+
+    private static final String[] CURRENCIES = {"EUR", "USD", "GBP", "JPY", "CHF"};
+    private static final String[] PRODUCT_TYPES = {"Treasury Bills", "Corporate Bonds", "REPO", "Interest Rate Swaps",
+            "OTC Index Option", "Currency Options", "Reverse Repos", "FX Forward", "Credit Default Swap", "Equity Future"};
+    private static final String[] REGIONS = {"Domestic", "International", "EMEA", "APAC", "AMER"};
+    private static final String[] INVALID_DATES = {"2024-01-01", "20241301", "20240000", "2024011", "01012024", "N/A", ""};
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final LocalDate FIRST_TRADE_DATE = LocalDate.of(2016, 1, 1);
+    private static final int TRADE_DATE_RANGE_DAYS = 3_000;
+
+    @Builder.Default
+    private final long seed = 42L;
+    @Builder.Default
+    private final int productCount = 100_000;
+    @Builder.Default
+    private final double invalidDateRatio = 0.01;
+    @Builder.Default
+    private final double unknownProductRatio = 0.01;
+    @Builder.Default
+    private final double duplicateRatio = 0.01;
+
+    public void writeProducts(final Writer writer) throws IOException {
+        final SplittableRandom random = new SplittableRandom(seed);
+        writer.write("product_id,product_name\n");
+        for (int productId = 1; productId <= productCount; productId++) {
+            writer.write(Integer.toString(productId));
+            writer.write(',');
+            writer.write(PRODUCT_TYPES[random.nextInt(PRODUCT_TYPES.length)]);
+            writer.write(' ');
+            writer.write(REGIONS[random.nextInt(REGIONS.length)]);
+            writer.write(' ');
+            writer.write(Integer.toString(productId));
+            writer.write('\n');
+        }
+    }
+
+    public void writeTrades(final Writer writer, final long tradeCount) throws IOException {
+        final SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        writer.write("date,product_id,currency,price\n");
+        String previous = null;
+        for (long i = 0; i < tradeCount; i++) {
+            final String trade = previous != null && random.nextDouble() < duplicateRatio
+                    ? previous
+                    : nextTrade(random);
+            writer.write(trade);
+            writer.write('\n');
+            previous = trade;
+        }
+    }
+
+    private String nextTrade(final SplittableRandom random) {
+        final String date = random.nextDouble() < invalidDateRatio
+                ? INVALID_DATES[random.nextInt(INVALID_DATES.length)]
+                : FIRST_TRADE_DATE.plusDays(random.nextInt(TRADE_DATE_RANGE_DAYS)).format(DATE_FORMATTER);
+        final int productId = random.nextDouble() < unknownProductRatio
+                ? productCount + 1 + random.nextInt(Math.max(productCount, 1))
+                : 1 + random.nextInt(productCount);
+        final String currency = CURRENCIES[random.nextInt(CURRENCIES.length)];
+        final int cents = random.nextInt(1, 10_000_000);
+        return date + ',' + productId + ',' + currency + ',' + cents / 100 + '.' + (cents % 100 < 10 ? "0" : "") + cents % 100;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final CommandLineOptions options = new CommandLineOptions(args);
+        final Path outputDirectory = Paths.get(options.get("out", "target/loadtest"));
+        final long tradeCount = options.getLong("trades", 1_000_000L);
+        final TradeDataGenerator generator = TradeDataGenerator.builder()
+                .seed(options.getLong("seed", 42L))
+                .productCount(options.getInt("products", 100_000))
+                .invalidDateRatio(options.getDouble("invalid-date-ratio", 0.01))
+                .unknownProductRatio(options.getDouble("unknown-product-ratio", 0.01))
+                .duplicateRatio(options.getDouble("duplicate-ratio", 0.01))
+                .build();
+
+        Files.createDirectories(outputDirectory);
+        final Path productFile = outputDirectory.resolve("product.csv");
+        final Path tradeFile = outputDirectory.resolve("trade.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(productFile, StandardCharsets.UTF_8)) {
+            generator.writeProducts(writer);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(tradeFile, StandardCharsets.UTF_8)) {
+            generator.writeTrades(writer, tradeCount);
+        }
+        System.out.printf("Generated %d products into %s and %d trades into %s%n",
+                generator.getProductCount(), productFile, tradeCount, tradeFile);
+    }
+}
@@ -0,0 +1,97 @@
+package com.verygoodbank.tes.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeDataGeneratorTest {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Test
+    void givenSameSeed_whenWriteTrades_thenOutputIsIdentical() throws IOException {
+        // given
+        final TradeDataGenerator first = TradeDataGenerator.builder().seed(7L).productCount(100).build();
+        final TradeDataGenerator second = TradeDataGenerator.builder().seed(7L).productCount(100).build();
+        final TradeDataGenerator other = TradeDataGenerator.builder().seed(8L).productCount(100).build();
+
+        // when & then
+        assertEquals(trades(first, 1_000), trades(second, 1_000));
+        assertNotEquals(trades(first, 1_000), trades(other, 1_000));
+    }
+
+    @Test
+    void givenProductCount_whenWriteProducts_thenOneRowPerProduct() throws IOException {
+        // given
+        final TradeDataGenerator generator = TradeDataGenerator.builder().productCount(50).build();
+        final StringWriter writer = new StringWriter();
+
+        // when
+        generator.writeProducts(writer);
+
+        // then
+        final List<String> lines = Arrays.asList(writer.toString().split("\n"));
+        assertEquals(51, lines.size());
+        assertEquals("product_id,product_name", lines.get(0));
+        assertTrue(lines.get(50).startsWith("50,"));
+    }
+
+    @Test
+    void givenRatios_whenWriteTrades_thenInvalidUnknownAndDuplicateRowsMatchRatios() throws IOException {
+        // given
+        final int tradeCount = 100_000;
+        final TradeDataGenerator generator = TradeDataGenerator.builder()
+                .productCount(1_000)
+                .invalidDateRatio(0.1)
+                .unknownProductRatio(0.2)
+                .duplicateRatio(0.05)
+                .build();
+
+        // when
+        final List<String> lines = trades(generator, tradeCount);
+
+        // then
+        assertEquals("date,product_id,currency,price", lines.get(0));
+        final List<String[]> rows = lines.subList(1, lines.size()).stream().map(line -> line.split(",", -1)).toList();
+        assertEquals(tradeCount, rows.size());
+        assertRatio(0.1, rows.stream().filter(row -> !isValidDate(row[0])).count(), tradeCount);
+        assertRatio(0.2, rows.stream().filter(row -> Integer.parseInt(row[1]) > 1_000).count(), tradeCount);
+        long duplicates = 0;
+        for (int i = 2; i < lines.size(); i++) {
+            if (lines.get(i).equals(lines.get(i - 1))) {
+                duplicates++;
+            }
+        }
+        assertRatio(0.05, duplicates, tradeCount);
+    }
+
+    private static List<String> trades(final TradeDataGenerator generator, final int tradeCount) throws IOException {
+        final StringWriter writer = new StringWriter();
+        generator.writeTrades(writer, tradeCount);
+        return Arrays.asList(writer.toString().split("\n"));
+    }
+
+    private static boolean isValidDate(final String date) {
+        try {
+            LocalDate.parse(date, DATE_FORMATTER);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static void assertRatio(final double expected, final long count, final int total) {
+        final double actual = (double) count / total;
+        assertTrue(Math.abs(expected - actual) < 0.01, "expected ratio " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,109 @@
+package com.verygoodbank.tes.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestProfilerTest {
+
+    private static final int ALLOCATION_SIZE = 4 * 1024 * 1024;
+
+    @Test
+    void givenAllocationsOnTrackedThreads_whenFinish_thenAllocatedBytesSummedAcrossThreads() throws Exception {
+        // given
+        final RequestProfiler requestProfiler = new RequestProfiler(true, false, 10);
+        final RequestProfiler.Recording recording = requestProfiler.start("servlet");
+        final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+        // when
+        recording.track();
+        final byte[] allocated = new byte[ALLOCATION_SIZE];
+        worker.submit(() -> {
+            recording.track();
+            final byte[] workerAllocation = new byte[ALLOCATION_SIZE];
+            workerAllocation[0] = 1;
+        }).get();
+        allocated[0] = 1;
+        recording.addBytesIn(100);
+        recording.addBytesOut(150);
+        recording.finish();
+        worker.shutdown();
+
+        // then
+        final ProfilingReport report = requestProfiler.report();
+        assertEquals(1, report.getRequests());
+        final RequestProfile profile = report.getRecent().get(0);
+        assertEquals("servlet", profile.getEndpoint());
+        assertEquals(2, profile.getThreads());
+        assertTrue(profile.getAllocatedBytes() >= 2L * ALLOCATION_SIZE);
+        assertEquals(100, profile.getBytesIn());
+        assertEquals(150, profile.getBytesOut());
+        assertEquals(100, report.getTotalBytesIn());
+    }
+
+    @Test
+    void givenMoreRequestsThanLimit_whenReport_thenOnlyMostRecentKept() {
+        // given
+        final RequestProfiler requestProfiler = new RequestProfiler(true, false, 2);
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            requestProfiler.start("servlet").finish();
+        }
+
+        // then
+        final ProfilingReport report = requestProfiler.report();
+        assertEquals(3, report.getRequests());
+        assertEquals(2, report.getRecent().size());
+        assertEquals(3, report.getRecent().get(0).getRequestId());
+    }
+
+    @Test
+    void givenProfilingDisabled_whenFinish_thenNothingRecorded() {
+        // given
+        final RequestProfiler requestProfiler = new RequestProfiler(false, false, 10);
+        final RequestProfiler.Recording recording = requestProfiler.start("servlet");
+
+        // when
+        recording.track();
+        try (RequestProfiler.Recording.Stage ignored = recording.stage("enrich")) {
+            recording.addBytesIn(10);
+        }
+        recording.finish();
+
+        // then
+        assertEquals(0, requestProfiler.report().getRequests());
+    }
+
+    @Test
+    void givenInterleavedTrackCalls_whenFinish_thenEachThreadCountedOncePerRecording() throws Exception {
+        // given
+        final RequestProfiler requestProfiler = new RequestProfiler(true, false, 10);
+        final RequestProfiler.Recording first = requestProfiler.start("servlet");
+        final RequestProfiler.Recording second = requestProfiler.start("servlet");
+        final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+        // when
+        worker.submit(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                first.track();
+                second.track();
+                first.track();
+            }
+        }).get();
+        first.finish();
+        second.finish();
+        worker.shutdown();
+
+        // then
+        final List<RequestProfile> recent = requestProfiler.report().getRecent();
+        assertEquals(2, recent.size());
+        assertEquals(1, recent.get(0).getThreads());
+        assertEquals(1, recent.get(1).getThreads());
+    }
+}
@@ -0,0 +1,253 @@
+package com.verygoodbank.tes.service.impl;
+
+import com.verygoodbank.tes.dao.enums.BatchOutputFormat;
+import com.verygoodbank.tes.exception.InternalServerError;
+import com.verygoodbank.tes.io.PooledResponseWriter;
+import com.verygoodbank.tes.io.ResponseBufferPool;
+import com.verygoodbank.tes.profiling.RequestProfile;
+import com.verygoodbank.tes.profiling.RequestProfiler;
+import com.verygoodbank.tes.service.ProductService;
+import com.verygoodbank.tes.service.TradeEnrichmentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.stream.IntStream;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static com.verygoodbank.tes.exception.ResponseErrorCode.BATCH_ENTRY_TOO_LARGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+class BatchTradeEnrichmentServiceImplTest {
+
+    private static final String TRADES_A = "date,product_id,currency,price\n20240101,1,EUR,10.0\n20240101,2,EUR,20.1\n";
+    private static final String TRADES_B = "date,product_id,currency,price\n20240102,1,USD,30.0\n2024-01-02,1,USD,40.0\n";
+
+    @Mock
+    private ProductService productService;
+
+    private ForkJoinPool forkJoinPool;
+    private ExecutorService batchExecutor;
+    private RequestProfiler requestProfiler;
+    private BatchTradeEnrichmentServiceImpl batchTradeEnrichmentService;
+
+    @BeforeEach
+    void setUp() {
+        forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        batchExecutor = Executors.newCachedThreadPool();
+        final ResponseBufferPool responseBufferPool = new ResponseBufferPool(64, 4, 2, Duration.ofMillis(10));
+        requestProfiler = new RequestProfiler(true, false, 10);
+        final TradeEnrichmentServiceImpl tradeEnrichmentService = new TradeEnrichmentServiceImpl(productService,
+                forkJoinPool, responseBufferPool, requestProfiler, batchExecutor, 100, 2);
+        batchTradeEnrichmentService = new BatchTradeEnrichmentServiceImpl(tradeEnrichmentService, responseBufferPool,
+                requestProfiler, batchExecutor, 1, DataSize.ofMegabytes(1));
+        lenient().when(productService.getProductName(anyString())).thenAnswer(invocation -> "Product " + invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        forkJoinPool.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+
+    @Test
+    void givenCsvFormat_whenEnrichBatch_thenWritesSingleCsvWithSourceColumn() throws Exception {
+        // given
+        final List<MultipartFile> files = List.of(csvFile("a.csv", TRADES_A),
+                zipFile("bundle.zip", Map.of("b.csv", TRADES_B)));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        batchTradeEnrichmentService.enrichBatch(files, BatchOutputFormat.CSV, outputStream);
+
+        // then
+        final String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("date,product_id,product_name,currency,price,source", lines[0]);
+        assertEquals(List.of(
+                        "20240101,1,Product 1,EUR,10.0,a.csv",
+                        "20240101,2,Product 2,EUR,20.1,a.csv",
+                        "20240102,1,Product 1,USD,30.0,bundle.zip/b.csv"),
+                Arrays.stream(lines).skip(1).sorted().toList());
+        final List<RequestProfile> profiles = requestProfiler.report().getRecent();
+        assertEquals(1, profiles.size());
+        assertEquals("batch", profiles.get(0).getEndpoint());
+        assertEquals(outputStream.size(), profiles.get(0).getBytesOut());
+        assertEquals(TRADES_A.length() + TRADES_B.length(), profiles.get(0).getBytesIn());
+    }
+
+    @Test
+    void givenZipFormat_whenEnrichBatch_thenWritesOneEnrichedEntryPerCsvFile() throws Exception {
+        // given
+        final List<MultipartFile> files = List.of(csvFile("a.csv", TRADES_A),
+                zipFile("bundle.zip", Map.of("b.csv", TRADES_B, "readme.txt", "not a trade file", "nested/a.csv", TRADES_A)),
+                csvFile("a.csv", TRADES_B));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        batchTradeEnrichmentService.enrichBatch(files, BatchOutputFormat.ZIP, outputStream);
+
+        // then
+        final Map<String, String> entries = readZip(outputStream.toByteArray());
+        assertEquals(List.of("a(2).csv", "a.csv", "bundle.zip/b.csv", "bundle.zip/nested/a.csv"), List.copyOf(entries.keySet()));
+        final String enrichedA = "date,product_id,product_name,currency,price\n"
+                + "20240101,1,Product 1,EUR,10.0\n20240101,2,Product 2,EUR,20.1\n";
+        final String enrichedB = "date,product_id,product_name,currency,price\n20240102,1,Product 1,USD,30.0\n";
+        assertEquals(enrichedA, sortedBody(entries.get("bundle.zip/nested/a.csv")));
+        assertEquals(enrichedB, entries.get("bundle.zip/b.csv"));
+        assertEquals(List.of(enrichedA, enrichedB),
+                List.of(entries.get("a.csv"), entries.get("a(2).csv")).stream().map(this::sortedBody).sorted().toList());
+    }
+
+    @Test
+    void givenClientGone_whenEnrichBatchToZip_thenBatchIsAbandonedAndPermitsReturned() {
+        // given
+        final TradeEnrichmentService slowEnrichment = mock(TradeEnrichmentService.class);
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            invocation.<OutputStream>getArgument(1).write("enriched\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(slowEnrichment).enrichTradeStream(any(InputStream.class), any(OutputStream.class), any());
+        final BatchTradeEnrichmentServiceImpl service = new BatchTradeEnrichmentServiceImpl(slowEnrichment,
+                new ResponseBufferPool(64, 4, 2, Duration.ofMillis(10)), requestProfiler, batchExecutor, 2,
+                DataSize.ofMegabytes(1));
+        final List<MultipartFile> files = IntStream.range(0, 6)
+                .mapToObj(i -> (MultipartFile) csvFile("trades" + i + ".csv", TRADES_A))
+                .toList();
+        final OutputStream clientGone = new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // when & then
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(InternalServerError.class, () -> service.enrichBatch(files, BatchOutputFormat.ZIP, clientGone));
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            service.enrichBatch(files, BatchOutputFormat.ZIP, outputStream);
+            assertEquals(6, readZip(outputStream.toByteArray()).size());
+        });
+        assertEquals(2, ((Semaphore) ReflectionTestUtils.getField(service, "fileSlots")).availablePermits());
+    }
+
+    @Test
+    void givenClientGone_whenEnrichBatchToCsv_thenBatchIsAbandonedAndPermitsReturned() {
+        // given
+        final TradeEnrichmentService slowEnrichment = mock(TradeEnrichmentService.class);
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            invocation.<PooledResponseWriter>getArgument(2).writeLine("enriched");
+            return null;
+        }).when(slowEnrichment).enrichTradeLines(any(InputStream.class), anyString(), any(PooledResponseWriter.class), any());
+        final BatchTradeEnrichmentServiceImpl service = new BatchTradeEnrichmentServiceImpl(slowEnrichment,
+                new ResponseBufferPool(64, 4, 2, Duration.ofMillis(10)), requestProfiler, batchExecutor, 2,
+                DataSize.ofMegabytes(1));
+        final List<MultipartFile> files = IntStream.range(0, 6)
+                .mapToObj(i -> (MultipartFile) csvFile("trades" + i + ".csv", TRADES_A))
+                .toList();
+        final OutputStream clientGone = new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // when & then
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(InternalServerError.class, () -> service.enrichBatch(files, BatchOutputFormat.CSV, clientGone));
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            service.enrichBatch(files, BatchOutputFormat.CSV, outputStream);
+            assertEquals(7, outputStream.toString(StandardCharsets.UTF_8).split("\n").length);
+        });
+        final Semaphore fileSlots = (Semaphore) ReflectionTestUtils.getField(service, "fileSlots");
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> fileSlots.acquire(2));
+    }
+
+    @Test
+    void givenZipEntryAboveSizeLimit_whenEnrichBatch_thenRejectsBatch() throws Exception {
+        // given
+        final TradeEnrichmentServiceImpl tradeEnrichmentService = new TradeEnrichmentServiceImpl(productService,
+                forkJoinPool, new ResponseBufferPool(64 * 1024, 4, 2, Duration.ofMillis(10)), requestProfiler,
+                batchExecutor, 100, 2);
+        final BatchTradeEnrichmentServiceImpl service = new BatchTradeEnrichmentServiceImpl(tradeEnrichmentService,
+                new ResponseBufferPool(64 * 1024, 4, 2, Duration.ofMillis(10)), requestProfiler, batchExecutor, 1,
+                DataSize.ofKilobytes(64));
+        final String oversized = TRADES_A + "20240101,1,EUR,10.0\n".repeat(5_000);
+        final List<MultipartFile> files = List.of(zipFile("bomb.zip", Map.of("trades.csv", oversized)));
+
+        // when
+        final InternalServerError csvException = assertThrows(InternalServerError.class,
+                () -> service.enrichBatch(files, BatchOutputFormat.CSV, new ByteArrayOutputStream()));
+        final InternalServerError zipException = assertThrows(InternalServerError.class,
+                () -> service.enrichBatch(files, BatchOutputFormat.ZIP, new ByteArrayOutputStream()));
+
+        // then
+        assertEquals(BATCH_ENTRY_TOO_LARGE, csvException.getMessage());
+        assertEquals(BATCH_ENTRY_TOO_LARGE, zipException.getMessage());
+        assertEquals(1, ((Semaphore) ReflectionTestUtils.getField(service, "fileSlots")).availablePermits());
+    }
+
+    private String sortedBody(final String csv) {
+        final String[] lines = csv.split("\n");
+        return lines[0] + "\n" + Arrays.stream(lines).skip(1).sorted().map(line -> line + "\n").reduce("", String::concat);
+    }
+
+    private static MockMultipartFile csvFile(final String name, final String content) {
+        return new MockMultipartFile("files", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MockMultipartFile zipFile(final String name, final Map<String, String> entries) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : new TreeMap<>(entries).entrySet()) {
+                zipOutputStream.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOutputStream.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        }
+        return new MockMultipartFile("files", name, "application/zip", bytes.toByteArray());
+    }
+
+    private static Map<String, String> readZip(final byte[] zip) throws IOException {
+        final Map<String, String> entries = new TreeMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
@@ -4,19 +4,33 @@ import com.verygoodbank.tes.exception.InternalServerError;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Optional;
 
 import static com.verygoodbank.tes.exception.ResponseErrorCode.ERROR_LOADING_PRODUCT_DATA;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class ProductServiceImplTest {
@@ -24,6 +38,9 @@ class ProductServiceImplTest {
     @InjectMocks
     private ProductServiceImpl productService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private final String productFilePath = "src/test/resources/productData.csv";
 
     @BeforeEach
@@ -92,4 +109,93 @@ class ProductServiceImplTest {
             assertEquals(ERROR_LOADING_PRODUCT_DATA, exception.getMessage());
         }
     }
+
+    @Test
+    void givenReload_whenGetSnapshotVersion_thenVersionIncremented() {
+        // given
+        final long initialVersion = productService.getSnapshotVersion();
+
+        // when
+        productService.init();
+
+        // then
+        assertEquals(initialVersion + 1, productService.getSnapshotVersion());
+    }
+
+    @Test
+    void givenBackgroundLoad_whenGetProductName_thenWaitsForProducts() {
+        // given
+        final ProductServiceImpl backgroundService = new ProductServiceImpl();
+        ReflectionTestUtils.setField(backgroundService, "productFilePath", productFilePath);
+        assertFalse(backgroundService.isLoaded());
+
+        // when
+        backgroundService.loadInBackground();
+        String actualProductName = backgroundService.getProductName("1");
+
+        // then
+        assertEquals("Treasury Bills Domestic", actualProductName);
+        assertTrue(backgroundService.isLoaded());
+    }
+
+    @Test
+    void givenFailedBackgroundLoad_whenGetProductName_thenThrowException() {
+        // given
+        final ProductServiceImpl backgroundService = new ProductServiceImpl();
+        ReflectionTestUtils.setField(backgroundService, "productFilePath", "test/path/missing.csv");
+        backgroundService.setApplicationEventPublisher(eventPublisher);
+
+        // when
+        backgroundService.loadInBackground();
+        Exception exception = assertThrows(InternalServerError.class, () -> backgroundService.getProductName("1"));
+
+        // then
+        assertEquals(ERROR_LOADING_PRODUCT_DATA, exception.getMessage());
+        assertFalse(backgroundService.isLoaded());
+        assertEquals(Optional.of("NoSuchFileException: test/path/missing.csv"), backgroundService.getLoadFailure());
+        assertLivenessBroken();
+    }
+
+    @Test
+    void givenInvalidHeader_whenLoadInBackground_thenGetProductNameThrowsException() {
+        // given
+        final ProductServiceImpl backgroundService = new ProductServiceImpl();
+        ReflectionTestUtils.setField(backgroundService, "productFilePath",
+                "src/test/resources/productDataInvalidHeader.csv");
+        backgroundService.setApplicationEventPublisher(eventPublisher);
+
+        // when
+        backgroundService.loadInBackground();
+        Exception exception = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(InternalServerError.class, () -> backgroundService.getProductName("1")));
+
+        // then
+        assertEquals(ERROR_LOADING_PRODUCT_DATA, exception.getMessage());
+        assertFalse(backgroundService.isLoaded());
+        assertTrue(backgroundService.getLoadFailure().orElseThrow().startsWith("IllegalArgumentException"));
+        assertLivenessBroken();
+    }
+
+    @Test
+    void givenLoadFailedDuringStartup_whenApplicationReady_thenLivenessBrokenAgain() {
+        // given
+        final ProductServiceImpl backgroundService = new ProductServiceImpl();
+        ReflectionTestUtils.setField(backgroundService, "productFilePath", "test/path/missing.csv");
+        backgroundService.setApplicationEventPublisher(eventPublisher);
+        backgroundService.loadInBackground();
+        assertThrows(InternalServerError.class, () -> backgroundService.getProductName("1"));
+        assertLivenessBroken();
+
+        // when
+        backgroundService.onApplicationReady();
+
+        // then
+        verify(eventPublisher, times(2)).publishEvent(any(AvailabilityChangeEvent.class));
+    }
+
+    private void assertLivenessBroken() {
+        final ArgumentCaptor<ApplicationEvent> event = ArgumentCaptor.forClass(ApplicationEvent.class);
+        verify(eventPublisher, timeout(5_000)).publishEvent(event.capture());
+        assertEquals(LivenessState.BROKEN, ((AvailabilityChangeEvent<?>) event.getValue()).getState());
+    }
 }
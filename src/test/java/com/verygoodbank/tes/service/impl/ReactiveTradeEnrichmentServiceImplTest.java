@@ -0,0 +1,122 @@
+package com.verygoodbank.tes.service.impl;
+
+import com.verygoodbank.tes.exception.InternalServerError;
+import com.verygoodbank.tes.profiling.RequestProfiler;
+import com.verygoodbank.tes.service.TradeEnrichmentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveTradeEnrichmentServiceImplTest {
+
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    @Mock
+    private TradeEnrichmentService tradeEnrichmentService;
+
+    private ReactiveTradeEnrichmentServiceImpl reactiveTradeEnrichmentService;
+
+    @BeforeEach
+    void setUp() {
+        reactiveTradeEnrichmentService = new ReactiveTradeEnrichmentServiceImpl(tradeEnrichmentService, Schedulers.parallel(),
+                new RequestProfiler(true, false, 10), 2, 4);
+        lenient().when(tradeEnrichmentService.enrichTrade(anyString(), anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> String.join(",", invocation.getArgument(0, String.class),
+                        invocation.getArgument(1, String.class), "Product " + invocation.getArgument(1, String.class),
+                        invocation.getArgument(2, String.class), invocation.getArgument(3, String.class)));
+    }
+
+    @Test
+    void givenLinesSplitAcrossBuffers_whenEnrichTradeData_thenReturnEnrichedTradesInOrder() {
+        // given
+        final Flux<DataBuffer> content = chunks("date,product_id,cur", "rency,price\r\n20240101,1,EUR,10.0\n2024",
+                "0101,2,EUR,20.1\n20240101,3,EUR,30.2\n20240101,4,EUR,40.3");
+
+        // when
+        final String result = collect(reactiveTradeEnrichmentService.enrichTradeData(content, bufferFactory));
+
+        // then
+        assertEquals("date,product_id,product_name,currency,price\n"
+                + "20240101,1,Product 1,EUR,10.0\n"
+                + "20240101,2,Product 2,EUR,20.1\n"
+                + "20240101,3,Product 3,EUR,30.2\n"
+                + "20240101,4,Product 4,EUR,40.3\n", result);
+    }
+
+    @Test
+    void givenReorderedColumnsAndQuotedValue_whenEnrichTradeData_thenColumnsResolvedFromHeader() {
+        // given
+        final Flux<DataBuffer> content = chunks("price,currency,product_id,date\n\"1,000.5\",EUR,1,20240101\n");
+
+        // when
+        final String result = collect(reactiveTradeEnrichmentService.enrichTradeData(content, bufferFactory));
+
+        // then
+        assertEquals("date,product_id,product_name,currency,price\n20240101,1,Product 1,EUR,1,000.5\n", result);
+    }
+
+    @Test
+    void givenDiscardedAndMalformedTrades_whenEnrichTradeData_thenSkipThem() {
+        // given
+        final Flux<DataBuffer> content = chunks("date,product_id,currency,price\n2024-01-01,1,EUR,10.0\n20240101,2,EUR\n\n20240101,3,EUR,30.2\n");
+        when(tradeEnrichmentService.enrichTrade("2024-01-01", "1", "EUR", "10.0")).thenReturn(null);
+
+        // when
+        final String result = collect(reactiveTradeEnrichmentService.enrichTradeData(content, bufferFactory));
+
+        // then
+        assertEquals("date,product_id,product_name,currency,price\n20240101,3,Product 3,EUR,30.2\n", result);
+    }
+
+    @Test
+    void givenEmptyContent_whenEnrichTradeData_thenReturnNothing() {
+        // when
+        final String result = collect(reactiveTradeEnrichmentService.enrichTradeData(Flux.empty(), bufferFactory));
+
+        // then
+        assertEquals("", result);
+    }
+
+    @Test
+    void givenHeaderWithoutRequiredColumns_whenEnrichTradeData_thenThrowInternalServerError() {
+        // given
+        final Flux<DataBuffer> content = chunks("date,currency,price\n20240101,EUR,10.0\n");
+
+        // when & then
+        assertThrows(InternalServerError.class,
+                () -> collect(reactiveTradeEnrichmentService.enrichTradeData(content, bufferFactory)));
+    }
+
+    private Flux<DataBuffer> chunks(final String... chunks) {
+        return Flux.fromArray(chunks).map(chunk -> bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String collect(final Flux<DataBuffer> buffers) {
+        return buffers.map(buffer -> {
+                    final String value = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return value;
+                })
+                .collect(Collectors.joining())
+                .block();
+    }
+}
@@ -1,25 +1,37 @@
 package com.verygoodbank.tes.service.impl;
 
 import com.verygoodbank.tes.exception.InternalServerError;
+import com.verygoodbank.tes.io.CountingInputStream;
+import com.verygoodbank.tes.io.ResponseBufferPool;
+import com.verygoodbank.tes.profiling.RequestProfiler;
 import com.verygoodbank.tes.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.any;
@@ -36,13 +48,22 @@ class TradeEnrichmentServiceImplTest {
     @Mock
     private ForkJoinPool forkJoinPool;
 
-    @InjectMocks
     private TradeEnrichmentServiceImpl tradeEnrichmentService;
 
+    private final ExecutorService readerExecutor = Executors.newCachedThreadPool();
+
     @BeforeEach
     void setUp() {
         forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
-        tradeEnrichmentService = new TradeEnrichmentServiceImpl(productService, forkJoinPool);
+        final ResponseBufferPool responseBufferPool = new ResponseBufferPool(64, 4, 2, Duration.ofMillis(10));
+        final RequestProfiler requestProfiler = new RequestProfiler(true, false, 10);
+        tradeEnrichmentService = new TradeEnrichmentServiceImpl(productService, forkJoinPool, responseBufferPool,
+                requestProfiler, readerExecutor, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readerExecutor.shutdownNow();
     }
 
     @Test
@@ -120,6 +141,67 @@ class TradeEnrichmentServiceImplTest {
         assertThrows(InternalServerError.class, () -> tradeEnrichmentService.enrichTradeData(file, outputStream));
     }
 
+    @Test
+    void givenStalledClient_whenOtherRequestRuns_thenOnlyStalledReaderWaits() throws Exception {
+        // given
+        final ForkJoinPool sharedPool = new ForkJoinPool(2);
+        final TradeEnrichmentServiceImpl service = new TradeEnrichmentServiceImpl(productService, sharedPool,
+                new ResponseBufferPool(64, 4, 2, Duration.ofMillis(10)), new RequestProfiler(true, false, 10),
+                readerExecutor, 100, 2);
+        when(productService.getProductName(anyString())).thenReturn("Some Product");
+        final byte[] trades = ("date,product_id,currency,price\n" + IntStream.range(0, 20_000)
+                .mapToObj(i -> "20240101," + i + ",EUR,10.0\n")
+                .collect(Collectors.joining())).getBytes(StandardCharsets.UTF_8);
+        final CountingInputStream stalledInput = new CountingInputStream(new ByteArrayInputStream(trades));
+        final CountDownLatch clientReading = new CountDownLatch(1);
+        final OutputStream stalledClient = new OutputStream() {
+            private long written;
+
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                written += len;
+                if (written > 1024) {
+                    try {
+                        clientReading.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e);
+                    }
+                }
+            }
+        };
+        final RequestProfiler.Recording recording = new RequestProfiler(true, false, 10).start("servlet");
+        final CompletableFuture<Void> stalledRequest = CompletableFuture.runAsync(() ->
+                service.enrichTradeStream(stalledInput, stalledClient, recording));
+        Thread.sleep(300);
+
+        try {
+            // when
+            final long readWhileStalled = stalledInput.getCount();
+            final MockMultipartFile file = new MockMultipartFile("file", "tradeData.csv", "text/csv",
+                    "date,product_id,currency,price\n20240101,1,EUR,10.0\n20240101,2,EUR,20.1".getBytes());
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> service.enrichTradeData(file, outputStream));
+
+            // then
+            assertEquals(3, outputStream.toString(StandardCharsets.UTF_8).split("\n").length);
+            assertFalse(stalledRequest.isDone());
+            assertTrue(readWhileStalled < 64 * 1024, "read " + readWhileStalled + " bytes while stalled");
+            assertEquals(readWhileStalled, stalledInput.getCount());
+            assertTrue(sharedPool.getPoolSize() <= 2, "pool grew to " + sharedPool.getPoolSize() + " workers");
+        } finally {
+            clientReading.countDown();
+            stalledRequest.get(30, TimeUnit.SECONDS);
+            sharedPool.shutdownNow();
+        }
+        assertEquals(trades.length, stalledInput.getCount());
+    }
+
     @Test
     void givenValidDate_whenIsValidDate_thenReturnTrue() {
         // given
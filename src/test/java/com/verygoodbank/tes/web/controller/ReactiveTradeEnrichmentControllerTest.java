@@ -0,0 +1,112 @@
+package com.verygoodbank.tes.web.controller;
+
+import com.verygoodbank.tes.service.ReactiveTradeEnrichmentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveTradeEnrichmentControllerTest {
+
+    private WebTestClient webTestClient;
+
+    @Mock
+    private ReactiveTradeEnrichmentService reactiveTradeEnrichmentService;
+
+    @InjectMocks
+    private ReactiveTradeEnrichmentController reactiveTradeEnrichmentController;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToController(reactiveTradeEnrichmentController).build();
+    }
+
+    @Test
+    void givenValidFile_whenEnrichTradeData_thenReturnsEnrichedTrades() {
+        // given
+        when(reactiveTradeEnrichmentService.enrichTradeData(any(), any())).thenAnswer(invocation -> {
+            final Flux<DataBuffer> content = invocation.getArgument(0);
+            final DataBufferFactory bufferFactory = invocation.getArgument(1);
+            return content.map(buffer -> {
+                        final String value = buffer.toString(StandardCharsets.UTF_8);
+                        DataBufferUtils.release(buffer);
+                        return value;
+                    })
+                    .reduce(String::concat)
+                    .map(value -> bufferFactory.wrap(("enriched:" + value).getBytes(StandardCharsets.UTF_8)))
+                    .flux();
+        });
+
+        // when & then
+        webTestClient.post().uri("/api/v1/enrich")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(multipart("tradeData.csv", "date,product_id,currency,price")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=enriched_trades.csv")
+                .expectHeader().contentType("text/csv")
+                .expectBody(String.class).isEqualTo("enriched:date,product_id,currency,price");
+
+        verify(reactiveTradeEnrichmentService, times(1)).enrichTradeData(any(), any());
+    }
+
+    @Test
+    void givenNonCsvFile_whenEnrichTradeData_thenReturnsBadRequest() {
+        // given
+        when(reactiveTradeEnrichmentService.enrichTradeData(any(), any()))
+                .thenAnswer(invocation -> invocation.<Flux<DataBuffer>>getArgument(0));
+
+        // when & then
+        webTestClient.post().uri("/api/v1/enrich")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(multipart("data.txt", "sample data")))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenEmptyFile_whenEnrichTradeData_thenReturnsBadRequest() {
+        // given
+        when(reactiveTradeEnrichmentService.enrichTradeData(any(), any())).thenReturn(Flux.empty());
+
+        // when & then
+        webTestClient.post().uri("/api/v1/enrich")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(multipart("empty.csv", "")))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private static MultiValueMap<String, HttpEntity<?>> multipart(final String filename, final String content) {
+        final MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        builder.part("file", new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        }).contentType(MediaType.parseMediaType("text/csv"));
+        return builder.build();
+    }
+}
@@ -1,11 +1,17 @@
 package com.verygoodbank.tes.web.controller;
 
+import com.verygoodbank.tes.cache.EnrichmentResultCache;
+import com.verygoodbank.tes.dao.enums.BatchOutputFormat;
+import com.verygoodbank.tes.profiling.RequestProfile;
+import com.verygoodbank.tes.profiling.RequestProfiler;
+import com.verygoodbank.tes.service.BatchTradeEnrichmentService;
 import com.verygoodbank.tes.service.TradeEnrichmentService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -14,12 +20,17 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.io.OutputStream;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
@@ -33,6 +44,15 @@ class TradeEnrichmentControllerTest {
     @Mock
     private TradeEnrichmentService tradeEnrichmentService;
 
+    @Mock
+    private EnrichmentResultCache enrichmentResultCache;
+
+    @Mock
+    private BatchTradeEnrichmentService batchTradeEnrichmentService;
+
+    @Spy
+    private RequestProfiler requestProfiler = new RequestProfiler(true, false, 10);
+
     @InjectMocks
     private TradeEnrichmentController tradeEnrichmentController;
 
@@ -93,4 +113,126 @@ class TradeEnrichmentControllerTest {
 
         verify(tradeEnrichmentService, never()).enrichTradeData(any(), any());
     }
+
+    @Test
+    void givenCachedResult_whenEnrichTradeData_thenServesFromCacheWithoutEnriching() throws Exception {
+        // given
+        final MockMultipartFile file = new MockMultipartFile("file", "tradeData.csv",
+                "text/csv", "sample,data".getBytes());
+        when(enrichmentResultCache.isEnabled()).thenReturn(true);
+        when(enrichmentResultCache.key(any())).thenReturn("hash-1");
+        doAnswer(invocation -> {
+            OutputStream outputStream = (OutputStream) invocation.getArguments()[1];
+            outputStream.write("cached".getBytes());
+            return true;
+        }).when(enrichmentResultCache).serve(eq("hash-1"), any());
+
+        // when & then
+        mockMvc.perform(multipart("/api/v1/enrich")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(content().string("cached"));
+
+        verify(tradeEnrichmentService, never()).enrichTradeData(any(), any());
+        final List<RequestProfile> profiles = requestProfiler.report().getRecent();
+        assertEquals(1, profiles.size());
+        assertEquals("servlet", profiles.get(0).getEndpoint());
+        assertEquals(file.getSize(), profiles.get(0).getBytesIn());
+        assertEquals("cached".length(), profiles.get(0).getBytesOut());
+    }
+
+    @Test
+    void givenCacheMiss_whenEnrichTradeData_thenEnrichesIntoCacheEntry() throws Exception {
+        // given
+        final MockMultipartFile file = new MockMultipartFile("file", "tradeData.csv",
+                "text/csv", "sample,data".getBytes());
+        final EnrichmentResultCache.Entry entry = mock(EnrichmentResultCache.Entry.class);
+        when(enrichmentResultCache.isEnabled()).thenReturn(true);
+        when(enrichmentResultCache.key(any())).thenReturn("hash-1");
+        when(enrichmentResultCache.serve(eq("hash-1"), any())).thenReturn(false);
+        when(enrichmentResultCache.open(eq("hash-1"), any())).thenAnswer(invocation -> {
+            when(entry.getOutputStream()).thenReturn(invocation.getArgument(1));
+            return entry;
+        });
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("enriched".getBytes());
+            return null;
+        }).when(tradeEnrichmentService).enrichTradeStream(any(), any(), any());
+
+        // when & then
+        mockMvc.perform(multipart("/api/v1/enrich")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(content().string("enriched"));
+
+        verify(tradeEnrichmentService, times(1)).enrichTradeStream(any(), any(), any());
+        verify(entry, times(1)).commit();
+        final List<RequestProfile> profiles = requestProfiler.report().getRecent();
+        assertEquals(1, profiles.size());
+        assertEquals("enriched".length(), profiles.get(0).getBytesOut());
+    }
+
+    @Test
+    void givenCsvFormat_whenEnrichTradeDataBatch_thenReturnsConcatenatedCsv() throws Exception {
+        // given
+        final MockMultipartFile first = new MockMultipartFile("files", "a.csv", "text/csv", "sample,data".getBytes());
+        final MockMultipartFile second = new MockMultipartFile("files", "b.zip", "application/zip", "zip".getBytes());
+
+        doAnswer(invocation -> {
+            OutputStream outputStream = (OutputStream) invocation.getArguments()[2];
+            outputStream.write("date,product_id,product_name,currency,price,source\n".getBytes());
+            return null;
+        }).when(batchTradeEnrichmentService).enrichBatch(any(), eq(BatchOutputFormat.CSV), any());
+
+        // when & then
+        mockMvc.perform(multipart("/api/v1/enrich/batch")
+                        .file(first)
+                        .file(second)
+                        .param("format", "csv")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string("date,product_id,product_name,currency,price,source\n"));
+
+        verify(batchTradeEnrichmentService, times(1)).enrichBatch(any(), eq(BatchOutputFormat.CSV), any());
+    }
+
+    @Test
+    void givenNoFormat_whenEnrichTradeDataBatch_thenReturnsZip() throws Exception {
+        // given
+        final MockMultipartFile file = new MockMultipartFile("files", "a.csv", "text/csv", "sample,data".getBytes());
+
+        // when & then
+        mockMvc.perform(multipart("/api/v1/enrich/batch")
+                        .file(file)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=enriched_trades.zip"))
+                .andExpect(content().contentType("application/zip"));
+
+        verify(batchTradeEnrichmentService, times(1)).enrichBatch(any(), eq(BatchOutputFormat.ZIP), any());
+    }
+
+    @Test
+    void givenUnsupportedFileOrFormat_whenEnrichTradeDataBatch_thenReturnsBadRequest() throws Exception {
+        // given
+        final MockMultipartFile csvFile = new MockMultipartFile("files", "a.csv", "text/csv", "sample,data".getBytes());
+        final MockMultipartFile textFile = new MockMultipartFile("files", "notes.txt", "text/plain", "sample".getBytes());
+
+        // when & then
+        mockMvc.perform(multipart("/api/v1/enrich/batch")
+                        .file(csvFile)
+                        .file(textFile)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(multipart("/api/v1/enrich/batch")
+                        .file(csvFile)
+                        .param("format", "xlsx")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest());
+
+        verify(batchTradeEnrichmentService, never()).enrichBatch(any(), any(), any());
+    }
 }